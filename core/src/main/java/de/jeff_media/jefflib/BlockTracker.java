@@ -1,34 +1,66 @@
 package de.jeff_media.jefflib;
 
+import de.jeff_media.jefflib.data.BlockTrackerStats;
+import de.jeff_media.jefflib.internal.blocktracker.BlockTrackerCache;
+import de.jeff_media.jefflib.internal.blocktracker.BlockTrackerJournal;
+import de.jeff_media.jefflib.internal.blocktracker.BlockTrackerMetrics;
+import de.jeff_media.jefflib.internal.blocktracker.BlockTrackerQueue;
+import de.jeff_media.jefflib.internal.blocktracker.BlockTrackerStorage;
+import de.jeff_media.jefflib.internal.blocktracker.LongHashMap;
+import de.jeff_media.jefflib.internal.blocktracker.TrackedChunk;
+import de.jeff_media.jefflib.internal.commands.BlockTrackerStatsCommand;
 import lombok.experimental.UtilityClass;
+import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
+import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataHolder;
-import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.block.BlockFace;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.util.BoundingBox;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tracks player placed blocks.
  * <p>
  * Uses the chunk's PersistentDataContainer to store information about which blocks have been placed
- * by the player. You can track all block types or only certain ones.
+ * by the player. You can track all block types or only certain ones. By default, one bitset is stored per
+ * 16x16x16 chunk section, see {@link StorageMode}. While the listener is registered, the data of loaded chunks is kept
+ * in memory and only written back when the chunk unloads, when the world is saved, or every {@link #setFlushInterval(long)} ticks.
+ * Optionally, it can also remember who placed each block, see {@link #setTrackPlacers(boolean)}.
  * <p>
  * <b>Important: Tracking blocks requires registering the listener using {@link JeffLib#registerBlockTracker()}</b>
  */
 @UtilityClass
 public final class BlockTracker {
 
-    private static final Plugin plugin = JeffLib.getPlugin();
-    private static final NamespacedKey PLAYER_PLACED_TAG = new NamespacedKey(plugin, "playerplaced");
-    private static final Collection<Material> TRACKED_TYPES = new HashSet<>();
+    private static final Material[] MATERIALS = Material.values();
+    private static final Object TRACKED_TYPES_LOCK = new Object();
+    /**
+     * Ordinal-indexed set of tracked materials. Never modified after being published, writers replace it with a modified copy.
+     */
+    private static volatile BitSet trackedTypes = new BitSet(MATERIALS.length);
+    private static volatile boolean trackAllTypes = false;
+    private static StorageMode storageMode = StorageMode.PACKED;
+    private static boolean trackPlacers = false;
 
     /**
      * Adds a new material to the block tracker
@@ -36,7 +68,7 @@ public final class BlockTracker {
      * @param type material to track
      */
     public static void addTrackedBlockType(final Material type) {
-        TRACKED_TYPES.add(type);
+        addTrackedBlockTypes(Collections.singleton(type));
     }
 
     /**
@@ -45,30 +77,59 @@ public final class BlockTracker {
      * @param types materials to track
      */
     public static void addTrackedBlockTypes(final Collection<Material> types) {
-        TRACKED_TYPES.addAll(types);
+        synchronized (TRACKED_TYPES_LOCK) {
+            final BitSet copy = (BitSet) trackedTypes.clone();
+            for (final Material type : types) {
+                copy.set(type.ordinal());
+            }
+            trackedTypes = copy;
+        }
     }
 
     /**
-     * Gets a collection containing all tracked materials
+     * Gets a collection containing all tracked materials. The returned collection is a copy, changes to it
+     * don't affect the block tracker.
      *
      * @return Collection containing all tracked materials
      */
     public static Collection<Material> getTrackedBlockTypes() {
-        return TRACKED_TYPES;
+        if (trackAllTypes) {
+            return EnumSet.allOf(Material.class);
+        }
+        final BitSet types = trackedTypes;
+        final Collection<Material> materials = EnumSet.noneOf(Material.class);
+        for (int ordinal = types.nextSetBit(0); ordinal >= 0; ordinal = types.nextSetBit(ordinal + 1)) {
+            materials.add(MATERIALS[ordinal]);
+        }
+        return materials;
     }
 
     /**
      * Tracks all materials
      */
     public static void trackAllBlockTypes() {
-        addTrackedBlockTypes(Arrays.asList(Material.values()));
+        synchronized (TRACKED_TYPES_LOCK) {
+            trackAllTypes = true;
+        }
+    }
+
+    /**
+     * Checks whether all materials are tracked. In this case, {@link #isTrackedBlockType(Material)} always returns true.
+     *
+     * @return true when all materials are tracked, otherwise false
+     */
+    public static boolean isTrackingAllBlockTypes() {
+        return trackAllTypes;
     }
 
     /**
      * Clears the list of tracked materials
      */
     public static void clearTrackedBlockTypes() {
-        TRACKED_TYPES.clear();
+        synchronized (TRACKED_TYPES_LOCK) {
+            trackAllTypes = false;
+            trackedTypes = new BitSet(MATERIALS.length);
+        }
     }
 
     /**
@@ -78,7 +139,7 @@ public final class BlockTracker {
      * @return true when this material is already tracked, otherwise false
      */
     public static boolean isTrackedBlockType(final Material type) {
-        return TRACKED_TYPES.contains(type);
+        return trackAllTypes || trackedTypes.get(type.ordinal());
     }
 
     /**
@@ -87,7 +148,218 @@ public final class BlockTracker {
      * @param types Collection of Materials to stop tracking
      */
     public static void removeTrackedBlockTypes(final Collection<Material> types) {
-        TRACKED_TYPES.removeAll(types);
+        synchronized (TRACKED_TYPES_LOCK) {
+            final BitSet copy;
+            if (trackAllTypes) {
+                copy = new BitSet(MATERIALS.length);
+                copy.set(0, MATERIALS.length);
+            } else {
+                copy = (BitSet) trackedTypes.clone();
+            }
+            for (final Material type : types) {
+                copy.clear(type.ordinal());
+            }
+            trackedTypes = copy;
+            trackAllTypes = false;
+        }
+    }
+
+    /**
+     * Gets the storage mode used to save tracked blocks
+     *
+     * @return Current storage mode
+     */
+    public static StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * Sets the storage mode used to save tracked blocks. Existing data stored in the other format is converted when a chunk is loaded
+     * or when it is first accessed.
+     *
+     * @param mode Storage mode to use
+     */
+    public static void setStorageMode(@NotNull final StorageMode mode) {
+        storageMode = mode;
+    }
+
+    /**
+     * Converts the chunk's existing data to the current storage mode, if it still uses the other format
+     *
+     * @param chunk Chunk to convert
+     */
+    public static void migrate(@NotNull final Chunk chunk) {
+        BlockTrackerStorage.migrate(chunk.getPersistentDataContainer(), storageMode);
+    }
+
+    /**
+     * Gets how often changed tracking data is written back to the chunks, in ticks. 0 means that changes are only written
+     * when a chunk unloads or when its world is saved.
+     *
+     * @return Flush interval in ticks
+     */
+    public static long getFlushInterval() {
+        return BlockTrackerCache.getFlushInterval();
+    }
+
+    /**
+     * Sets how often changed tracking data is written back to the chunks, in ticks. Regardless of this setting, changes are always
+     * written when a chunk unloads or when its world is saved. Use 0 to disable the periodic flush.
+     *
+     * @param ticks Flush interval in ticks
+     */
+    public static void setFlushInterval(final long ticks) {
+        BlockTrackerCache.setFlushInterval(ticks);
+    }
+
+    /**
+     * Writes all changed tracking data back to the chunks' PersistentDataContainers
+     */
+    public static void flush() {
+        BlockTrackerQueue.flush();
+        BlockTrackerCache.flushAll();
+        BlockTrackerJournal.saveAll();
+    }
+
+    /**
+     * Checks whether the listener also remembers which player placed a block. Disabled by default.
+     *
+     * @return true when placers are tracked, otherwise false
+     */
+    public static boolean isTrackingPlacers() {
+        return trackPlacers;
+    }
+
+    /**
+     * Sets whether the listener should also remember which player placed a block, see {@link #getPlacer(Block)}.
+     * Placers are stored using a small palette per chunk, so this only adds a few bytes per tracked block.
+     *
+     * @param trackPlacers Whether placers should be tracked
+     */
+    public static void setTrackPlacers(final boolean trackPlacers) {
+        BlockTracker.trackPlacers = trackPlacers;
+    }
+
+    /**
+     * Gets the UUID used to attribute blocks to a plugin instead of a player. The UUID is derived from the plugin's name,
+     * so it stays the same across restarts.
+     *
+     * @param plugin Plugin
+     * @return UUID representing this plugin
+     */
+    @NotNull
+    public static UUID getPlacerId(@NotNull final Plugin plugin) {
+        return UUID.nameUUIDFromBytes(("plugin:" + plugin.getName()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets who placed this block. This is either a player's UUID, or a UUID returned by {@link #getPlacerId(Plugin)}.
+     *
+     * @param block Block to check
+     * @return UUID of the placer, or null if the block isn't tracked or no placer is known
+     */
+    @Nullable
+    public static UUID getPlacer(@NotNull final Block block) {
+        final int x = block.getX();
+        final int y = block.getY();
+        final int z = block.getZ();
+        final long start = BlockTrackerMetrics.start();
+        final UUID placer = BlockTrackerCache.get(block.getWorld(), x >> 4, z >> 4).getPlacer(x, y, z);
+        BlockTrackerMetrics.QUERIES.record(start);
+        return placer;
+    }
+
+    /**
+     * Marks this block as player placed and remembers who placed it
+     *
+     * @param block  Block
+     * @param placer UUID of the player or plugin that placed this block, or null to only remove the placer
+     */
+    public static void setPlayerPlacedBlock(@NotNull final Block block, @Nullable final UUID placer) {
+        final int x = block.getX();
+        final int y = block.getY();
+        final int z = block.getZ();
+        final long start = BlockTrackerMetrics.start();
+        final TrackedChunk trackedChunk = BlockTrackerCache.get(block.getWorld(), x >> 4, z >> 4);
+        if (placer != null) {
+            trackedChunk.set(x, y, z, true);
+        }
+        trackedChunk.setPlacer(x, y, z, placer);
+        BlockTrackerCache.update(block.getWorld(), trackedChunk, y >> 4);
+        BlockTrackerMetrics.UPDATES.record(start);
+    }
+
+    /**
+     * Gets how long blocks stay tracked after being placed. 0 means that blocks never expire.
+     *
+     * @param unit Time unit of the returned value
+     * @return Time to live in the given unit
+     */
+    public static long getTimeToLive(@NotNull final TimeUnit unit) {
+        return unit.convert(TrackedChunk.getTimeToLive(), TimeUnit.MINUTES);
+    }
+
+    /**
+     * Sets how long blocks stay tracked after being placed. Placement times are stored with a precision of one minute, so
+     * the time to live is rounded up to full minutes. Use 0 to disable expiry.
+     * <p>
+     * Expired blocks are ignored by all queries, and removed from a chunk's data when it's loaded. Blocks that have been
+     * tracked while no time to live was set have no placement time and never expire.
+     *
+     * @param duration Time to live
+     * @param unit     Time unit of the duration
+     */
+    public static void setTimeToLive(final long duration, @NotNull final TimeUnit unit) {
+        final long minutes = (unit.toSeconds(duration) + 59) / 60;
+        TrackedChunk.setTimeToLive((int) Math.min(Integer.MAX_VALUE, Math.max(0, minutes)));
+    }
+
+    /**
+     * Checks whether query and update latencies are measured. Disabled by default.
+     *
+     * @return true when metrics are enabled, otherwise false
+     */
+    public static boolean isMetricsEnabled() {
+        return BlockTrackerMetrics.isEnabled();
+    }
+
+    /**
+     * Sets whether query and update latencies should be measured, see {@link #getStats(World, int)}
+     *
+     * @param enabled Whether metrics should be enabled
+     */
+    public static void setMetricsEnabled(final boolean enabled) {
+        BlockTrackerMetrics.setEnabled(enabled);
+    }
+
+    /**
+     * Resets the query and update latency histograms
+     */
+    public static void resetMetrics() {
+        BlockTrackerMetrics.reset();
+    }
+
+    /**
+     * Gets the statistics of a world. Chunk statistics only include chunks whose data is currently kept in memory, which
+     * requires the listener to be registered. Must be called from the main thread.
+     *
+     * @param world          World
+     * @param heaviestChunks How many of the chunks with the most stored bytes should be included
+     * @return Snapshot of the world's statistics
+     */
+    @NotNull
+    public static BlockTrackerStats getStats(@NotNull final World world, final int heaviestChunks) {
+        return BlockTrackerMetrics.getStats(world, heaviestChunks);
+    }
+
+    /**
+     * Registers a command that prints the block tracker statistics of all worlds, or of the given world
+     *
+     * @param permission Required permission or null
+     * @param aliases    Aliases of the command. First element is the "real" command name.
+     */
+    public static void registerStatsCommand(@Nullable final String permission, final String... aliases) {
+        CommandUtils.registerCommand(permission, new BlockTrackerStatsCommand(), aliases);
     }
 
     /**
@@ -97,8 +369,98 @@ public final class BlockTracker {
      * @return true when the block was player-placed and tracked, otherwise false
      */
     public static boolean isPlayerPlacedBlock(final Block block) {
-        final PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(block.getChunk());
-        return playerPlacedPDC.has(getKey(block), PersistentDataType.BYTE);
+        final int x = block.getX();
+        final int y = block.getY();
+        final int z = block.getZ();
+        final long start = BlockTrackerMetrics.start();
+        final boolean playerPlaced = BlockTrackerCache.get(block.getWorld(), x >> 4, z >> 4).isSet(x, y, z);
+        BlockTrackerMetrics.QUERIES.record(start);
+        return playerPlaced;
+    }
+
+    /**
+     * Checks whether the block at the given coordinates has been placed by a player. If the chunk is not loaded and the
+     * journal contains a pending change for this block, the chunk is not loaded. Otherwise, the chunk will be loaded.
+     *
+     * @param world World
+     * @param x     X coordinate
+     * @param y     Y coordinate
+     * @param z     Z coordinate
+     * @return true when the block was player-placed and tracked, otherwise false
+     */
+    public static boolean isPlayerPlacedBlock(@NotNull final World world, final int x, final int y, final int z) {
+        final long start = BlockTrackerMetrics.start();
+        Boolean playerPlaced = null;
+        if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+            playerPlaced = BlockTrackerJournal.get(world).get(x, y, z);
+        }
+        if (playerPlaced == null) {
+            playerPlaced = BlockTrackerCache.get(world, x >> 4, z >> 4).isSet(x, y, z);
+        }
+        BlockTrackerMetrics.QUERIES.record(start);
+        return playerPlaced;
+    }
+
+    /**
+     * Manually sets whether a player placed the block at the given coordinates. If the chunk is not loaded, the change is
+     * written to the world's block tracker journal and applied the next time the chunk loads, instead of loading the chunk.
+     *
+     * @param world        World
+     * @param x            X coordinate
+     * @param y            Y coordinate
+     * @param z            Z coordinate
+     * @param playerPlaced Whether the block was player placed
+     */
+    public static void setPlayerPlacedBlock(@NotNull final World world, final int x, final int y, final int z, final boolean playerPlaced) {
+        final long start = BlockTrackerMetrics.start();
+        if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+            final BlockTrackerJournal journal = BlockTrackerJournal.get(world);
+            journal.record(x, y, z, playerPlaced);
+            journal.flush();
+        } else {
+            final TrackedChunk trackedChunk = BlockTrackerCache.get(world, x >> 4, z >> 4);
+            if (trackedChunk.set(x, y, z, playerPlaced)) {
+                BlockTrackerCache.update(world, trackedChunk, y >> 4);
+            }
+        }
+        BlockTrackerMetrics.UPDATES.record(start);
+    }
+
+    /**
+     * Manually sets whether a player placed the blocks at the given packed positions. Changes for loaded chunks are applied
+     * directly, changes for unloaded chunks are written to the world's block tracker journal and applied the next time the
+     * chunk loads. This never loads any chunks, so it can be used to import large amounts of positions.
+     *
+     * @param world           World
+     * @param packedPositions Positions, packed using {@link BlockUtils#getPackedPosition(int, int, int)}
+     * @param playerPlaced    Whether the blocks were player placed
+     */
+    public static void setPlayerPlacedBlocks(@NotNull final World world, @NotNull final long[] packedPositions, final boolean playerPlaced) {
+        final long start = BlockTrackerMetrics.start();
+        final BlockTrackerJournal journal = BlockTrackerJournal.get(world);
+        final LongHashMap<TrackedChunk> chunks = new LongHashMap<>();
+        final Set<TrackedChunk> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final long packed : packedPositions) {
+            final int x = BlockUtils.getPackedX(packed);
+            final int y = BlockUtils.getPackedY(packed);
+            final int z = BlockUtils.getPackedZ(packed);
+            final long key = TrackedChunk.getKey(x >> 4, z >> 4);
+            TrackedChunk trackedChunk = chunks.get(key);
+            if (trackedChunk == null && world.isChunkLoaded(x >> 4, z >> 4)) {
+                trackedChunk = BlockTrackerCache.get(world, x >> 4, z >> 4);
+                chunks.put(key, trackedChunk);
+            }
+            if (trackedChunk == null) {
+                journal.record(x, y, z, playerPlaced);
+            } else if (trackedChunk.set(x, y, z, playerPlaced)) {
+                changed.add(trackedChunk);
+            }
+        }
+        journal.flush();
+        for (final TrackedChunk changedChunk : changed) {
+            BlockTrackerCache.update(world, changedChunk);
+        }
+        BlockTrackerMetrics.UPDATES.record(start);
     }
 
     /**
@@ -109,18 +471,98 @@ public final class BlockTracker {
      */
     public static @NotNull Collection<Block> getPlayerPlacedBlocks(final Chunk chunk) {
         final Collection<Block> blocks = new HashSet<>();
-        final PersistentDataContainer pdc = getPlayerPlacedPDC(chunk);
-        for (final NamespacedKey key : pdc.getKeys()) {
-            if (!key.getNamespace().equals(PLAYER_PLACED_TAG.getNamespace())) continue;
-            final String[] parts = key.getKey().split("/");
-            final int x = Integer.parseInt(parts[0]);
-            final int y = Integer.parseInt(parts[1]);
-            final int z = Integer.parseInt(parts[2]);
-            blocks.add(chunk.getBlock(x, y, z));
+        final TrackedChunk trackedChunk = BlockTrackerCache.get(chunk);
+        if (trackedChunk.expire()) {
+            BlockTrackerCache.update(chunk.getWorld(), trackedChunk);
+        }
+        for (final Map.Entry<Integer, long[]> entry : trackedChunk.getSections().entrySet()) {
+            final long[] words = entry.getValue();
+            for (int word = 0; word < words.length; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    final int index = (word << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    blocks.add(chunk.getBlock(index & 0xF, (entry.getKey() << 4) | (index >> 8), (index >> 4) & 0xF));
+                }
+            }
         }
         return blocks;
     }
 
+    /**
+     * Gets the positions of all player placed blocks inside the given area. The tracking data of all loaded chunks inside
+     * the area is copied on the main thread, and then decoded asynchronously. Unloaded chunks are skipped.
+     * <p>
+     * The returned positions are packed as described in {@link BlockUtils#getPackedPosition(int, int, int)}. A block is inside the
+     * area when the bounding box contains its center.
+     *
+     * @param world World
+     * @param box   Area to check
+     * @return CompletableFuture that completes with the packed positions of all player placed blocks in this area
+     */
+    @NotNull
+    public static CompletableFuture<long[]> getPlayerPlacedBlocksAsync(@NotNull final World world, @NotNull final BoundingBox box) {
+        final CompletableFuture<long[]> future = new CompletableFuture<>();
+        final BoundingBox area = box.clone();
+        if (Bukkit.isPrimaryThread()) {
+            collectPlayerPlacedBlocksAsync(world, area, future);
+        } else {
+            Bukkit.getScheduler().runTask(JeffLib.getPlugin(), () -> collectPlayerPlacedBlocksAsync(world, area, future));
+        }
+        return future;
+    }
+
+    private static void collectPlayerPlacedBlocksAsync(final World world, final BoundingBox box, final CompletableFuture<long[]> future) {
+        final List<TrackedChunk> snapshots = new ArrayList<>();
+        try {
+            final int minChunkX = (int) Math.floor(box.getMinX()) >> 4;
+            final int maxChunkX = (int) Math.floor(box.getMaxX()) >> 4;
+            final int minChunkZ = (int) Math.floor(box.getMinZ()) >> 4;
+            final int maxChunkZ = (int) Math.floor(box.getMaxZ()) >> 4;
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    if (!world.isChunkLoaded(chunkX, chunkZ)) continue;
+                    final TrackedChunk trackedChunk = BlockTrackerCache.get(world, chunkX, chunkZ);
+                    if (!trackedChunk.isEmpty()) {
+                        snapshots.add(trackedChunk.copy());
+                    }
+                }
+            }
+        } catch (final Throwable throwable) {
+            future.completeExceptionally(throwable);
+            return;
+        }
+
+        Bukkit.getScheduler().runTaskAsynchronously(JeffLib.getPlugin(), () -> {
+            long[] positions = new long[64];
+            int size = 0;
+            for (final TrackedChunk trackedChunk : snapshots) {
+                trackedChunk.expire();
+                final int baseX = trackedChunk.getX() << 4;
+                final int baseZ = trackedChunk.getZ() << 4;
+                for (final Map.Entry<Integer, long[]> entry : trackedChunk.getSections().entrySet()) {
+                    final long[] words = entry.getValue();
+                    for (int word = 0; word < words.length; word++) {
+                        long bits = words[word];
+                        while (bits != 0) {
+                            final int index = (word << 6) | Long.numberOfTrailingZeros(bits);
+                            bits &= bits - 1;
+                            final int x = baseX | (index & 0xF);
+                            final int y = (entry.getKey() << 4) | (index >> 8);
+                            final int z = baseZ | ((index >> 4) & 0xF);
+                            if (!box.contains(x + 0.5, y + 0.5, z + 0.5)) continue;
+                            if (size == positions.length) {
+                                positions = Arrays.copyOf(positions, size << 1);
+                            }
+                            positions[size++] = BlockUtils.getPackedPosition(x, y, z);
+                        }
+                    }
+                }
+            }
+            future.complete(Arrays.copyOf(positions, size));
+        });
+    }
+
     /**
      * Manually sets whether a player placed this block
      *
@@ -128,29 +570,148 @@ public final class BlockTracker {
      * @param playerPlaced Whether the block was player placed
      */
     public static void setPlayerPlacedBlock(final Block block, final boolean playerPlaced) {
-        final PersistentDataContainer pdc = block.getChunk().getPersistentDataContainer();
-        final PersistentDataContainer playerPlacedPDC = getPlayerPlacedPDC(block.getChunk());
-        final NamespacedKey key = getKey(block);
-        if (playerPlaced) {
-            playerPlacedPDC.set(key, PersistentDataType.BYTE, (byte) 1);
-        } else {
-            playerPlacedPDC.remove(key);
+        final int x = block.getX();
+        final int y = block.getY();
+        final int z = block.getZ();
+        final long start = BlockTrackerMetrics.start();
+        final TrackedChunk trackedChunk = BlockTrackerCache.get(block.getWorld(), x >> 4, z >> 4);
+        if (trackedChunk.set(x, y, z, playerPlaced)) {
+            BlockTrackerCache.update(block.getWorld(), trackedChunk, y >> 4);
         }
-        pdc.set(PLAYER_PLACED_TAG, PersistentDataType.TAG_CONTAINER, playerPlacedPDC);
+        BlockTrackerMetrics.UPDATES.record(start);
     }
 
-    private static PersistentDataContainer getPlayerPlacedPDC(final PersistentDataHolder chunk) {
-        final PersistentDataContainer pdc = chunk.getPersistentDataContainer();
-        return pdc.getOrDefault(PLAYER_PLACED_TAG, PersistentDataType.TAG_CONTAINER, pdc.getAdapterContext().newPersistentDataContainer());
+    /**
+     * Sets whether a player placed this block at the end of the current tick. Until then, {@link #isPlayerPlacedBlock(Block)}
+     * still returns the old value. All changes queued during the same tick are grouped by chunk and applied at once.
+     *
+     * @param block        Block
+     * @param playerPlaced Whether the block was player placed
+     */
+    public static void setPlayerPlacedBlockLater(@NotNull final Block block, final boolean playerPlaced) {
+        BlockTrackerQueue.queue(block, playerPlaced);
     }
 
-    private static NamespacedKey getKey(final Block block) {
-        final int x = block.getX() & 0x000F;
-        final int y = block.getY();
-        final int z = block.getZ() & 0x000F;
+    /**
+     * Manually sets whether a player placed these blocks. The blocks are grouped by chunk, so that every chunk is only written once.
+     *
+     * @param blocks       Blocks
+     * @param playerPlaced Whether the blocks were player placed
+     */
+    public static void setPlayerPlacedBlocks(@NotNull final Collection<Block> blocks, final boolean playerPlaced) {
+        final long start = BlockTrackerMetrics.start();
+        final Map<World, LongHashMap<TrackedChunk>> chunks = new HashMap<>();
+        final Map<TrackedChunk, World> changed = new IdentityHashMap<>();
+        for (final Block block : blocks) {
+            final int x = block.getX();
+            final int y = block.getY();
+            final int z = block.getZ();
+            final TrackedChunk trackedChunk = getTrackedChunk(chunks, block.getWorld(), x >> 4, z >> 4);
+            if (trackedChunk.set(x, y, z, playerPlaced)) {
+                changed.put(trackedChunk, block.getWorld());
+            }
+        }
+        for (final Map.Entry<TrackedChunk, World> entry : changed.entrySet()) {
+            BlockTrackerCache.update(entry.getValue(), entry.getKey());
+        }
+        BlockTrackerMetrics.UPDATES.record(start);
+    }
+
+    /**
+     * Moves all player placed blocks of the given collection one block into the given direction, together with their placers
+     * and placement times. This is used when blocks are moved by pistons. The blocks are grouped by chunk, so that every chunk
+     * is only written once.
+     *
+     * @param blocks    Blocks that are moved. Blocks that haven't been placed by players are ignored.
+     * @param direction Direction the blocks are moved to
+     */
+    public static void movePlayerPlacedBlocks(@NotNull final Collection<Block> blocks, @NotNull final BlockFace direction) {
+        final long start = BlockTrackerMetrics.start();
+        final Map<World, LongHashMap<TrackedChunk>> chunks = new HashMap<>();
+        final Map<TrackedChunk, World> changed = new IdentityHashMap<>();
+        final List<Block> moved = new ArrayList<>();
+        final List<UUID> placers = new ArrayList<>();
+        final List<Integer> times = new ArrayList<>();
+        // Read everything first, as the blocks may be moved into each other's positions
+        for (final Block block : blocks) {
+            final int x = block.getX();
+            final int y = block.getY();
+            final int z = block.getZ();
+            final TrackedChunk trackedChunk = getTrackedChunk(chunks, block.getWorld(), x >> 4, z >> 4);
+            if (!trackedChunk.isSet(x, y, z)) continue;
+            moved.add(block);
+            placers.add(trackedChunk.getPlacer(x, y, z));
+            times.add(trackedChunk.getTime(x, y, z));
+            trackedChunk.set(x, y, z, false);
+            changed.put(trackedChunk, block.getWorld());
+        }
+        for (int i = 0; i < moved.size(); i++) {
+            final Block block = moved.get(i);
+            final int x = block.getX() + direction.getModX();
+            final int y = block.getY() + direction.getModY();
+            final int z = block.getZ() + direction.getModZ();
+            final TrackedChunk trackedChunk = getTrackedChunk(chunks, block.getWorld(), x >> 4, z >> 4);
+            trackedChunk.set(x, y, z, true);
+            trackedChunk.setPlacer(x, y, z, placers.get(i));
+            trackedChunk.setTime(x, y, z, times.get(i));
+            changed.put(trackedChunk, block.getWorld());
+        }
+        for (final Map.Entry<TrackedChunk, World> entry : changed.entrySet()) {
+            BlockTrackerCache.update(entry.getValue(), entry.getKey());
+        }
+        BlockTrackerMetrics.UPDATES.record(start);
+    }
+
+    /**
+     * Gets all blocks of the given collection that have been placed by players. The blocks are grouped by chunk, so that
+     * every chunk is only looked up once.
+     *
+     * @param blocks Blocks to check
+     * @return Collection of all given blocks that have been placed by players, in the same order
+     */
+    @NotNull
+    public static Collection<Block> filterPlayerPlaced(@NotNull final Collection<Block> blocks) {
+        final long start = BlockTrackerMetrics.start();
+        final List<Block> result = new ArrayList<>();
+        final Map<World, LongHashMap<TrackedChunk>> chunks = new HashMap<>();
+        for (final Block block : blocks) {
+            final int x = block.getX();
+            final int y = block.getY();
+            final int z = block.getZ();
+            if (getTrackedChunk(chunks, block.getWorld(), x >> 4, z >> 4).isSet(x, y, z)) {
+                result.add(block);
+            }
+        }
+        BlockTrackerMetrics.QUERIES.record(start);
+        return result;
+    }
 
-        //noinspection HardcodedFileSeparator
-        return new NamespacedKey(plugin, String.format("%d/%d/%d", x, y, z));
+    /**
+     * Gets the tracking data of a chunk, looking up every chunk only once per batch
+     */
+    private static TrackedChunk getTrackedChunk(final Map<World, LongHashMap<TrackedChunk>> chunks, final World world, final int chunkX, final int chunkZ) {
+        final LongHashMap<TrackedChunk> worldChunks = chunks.computeIfAbsent(world, __ -> new LongHashMap<>());
+        final long key = TrackedChunk.getKey(chunkX, chunkZ);
+        TrackedChunk trackedChunk = worldChunks.get(key);
+        if (trackedChunk == null) {
+            trackedChunk = BlockTrackerCache.get(world, chunkX, chunkZ);
+            worldChunks.put(key, trackedChunk);
+        }
+        return trackedChunk;
+    }
+
+    /**
+     * Describes how tracked blocks are saved inside the chunk's PersistentDataContainer
+     */
+    public enum StorageMode {
+        /**
+         * Stores one bitset per 16x16x16 chunk section. Recommended for chunks with many tracked blocks.
+         */
+        PACKED,
+        /**
+         * Stores one key per block, as used by older versions of JeffLib.
+         */
+        LEGACY
     }
 
 }
@@ -104,6 +104,74 @@ public final class BlockUtils {
         return block.getLocation().add(0.5, 0.5, 0.5);
     }
 
+    /**
+     * Packs block coordinates into a single long, using the same layout as Minecraft's BlockPos: 26 bits for X and Z, 12 bits for Y.
+     *
+     * @param x X coordinate
+     * @param y Y coordinate, between -2048 and 2047
+     * @param z Z coordinate
+     * @return Packed position
+     */
+    public static long getPackedPosition(final int x, final int y, final int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL);
+    }
+
+    /**
+     * Packs the coordinates of a block into a single long
+     *
+     * @param block Block
+     * @return Packed position
+     * @see #getPackedPosition(int, int, int)
+     */
+    public static long getPackedPosition(final Block block) {
+        return getPackedPosition(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Gets the X coordinate of a packed position
+     *
+     * @param packed Packed position
+     * @return X coordinate
+     * @see #getPackedPosition(int, int, int)
+     */
+    public static int getPackedX(final long packed) {
+        return (int) (packed >> 38);
+    }
+
+    /**
+     * Gets the Y coordinate of a packed position
+     *
+     * @param packed Packed position
+     * @return Y coordinate
+     * @see #getPackedPosition(int, int, int)
+     */
+    public static int getPackedY(final long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    /**
+     * Gets the Z coordinate of a packed position
+     *
+     * @param packed Packed position
+     * @return Z coordinate
+     * @see #getPackedPosition(int, int, int)
+     */
+    public static int getPackedZ(final long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    /**
+     * Gets the block at a packed position
+     *
+     * @param world  World
+     * @param packed Packed position
+     * @return Block at this position
+     * @see #getPackedPosition(int, int, int)
+     */
+    public static Block getBlockAt(@NotNull final World world, final long packed) {
+        return world.getBlockAt(getPackedX(packed), getPackedY(packed), getPackedZ(packed));
+    }
+
     private static List<Block> getBlocksInRadiusSquare(final Location center, final int radius, final Predicate<Block> predicate) {
         final List<Block> blocks = new ArrayList<>();
         for (int x = center.getBlockX() - radius; x <= center.getBlockX() + radius; x++) {
@@ -4,9 +4,11 @@ import de.jeff_media.jefflib.exceptions.JeffLibNotInitializedException;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandMap;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.PluginCommand;
+import org.bukkit.command.TabCompleter;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.SimplePluginManager;
 
@@ -30,6 +32,18 @@ public final class CommandUtils {
      * @param aliases    Aliases of the command. First element is the "real" command name.
      */
     public static void registerCommand(@Nullable final String permission, final String... aliases) {
+        registerCommand(permission, null, aliases);
+    }
+
+    /**
+     * Registers a new command that is handled by the given executor. If the executor also implements {@link TabCompleter}, it's
+     * used for tab completion as well.
+     *
+     * @param permission Required permission or null
+     * @param executor   Executor handling this command, or null to use the plugin
+     * @param aliases    Aliases of the command. First element is the "real" command name.
+     */
+    public static void registerCommand(@Nullable final String permission, @Nullable final CommandExecutor executor, final String... aliases) {
 
         if (JeffLib.getPlugin() == null) {
             throw new JeffLibNotInitializedException();
@@ -39,6 +53,12 @@ public final class CommandUtils {
 
         command.setAliases(Arrays.asList(aliases));
         command.setPermission(permission);
+        if (executor != null) {
+            command.setExecutor(executor);
+        }
+        if (executor instanceof TabCompleter) {
+            command.setTabCompleter((TabCompleter) executor);
+        }
 
         getCommandMap().register(JeffLib.getPlugin().getDescription().getName(), command);
     }
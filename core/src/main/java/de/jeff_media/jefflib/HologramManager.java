@@ -1,80 +1,469 @@
 package de.jeff_media.jefflib;
 
-import de.jeff_media.jefflib.JeffLib;
 import de.jeff_media.jefflib.data.Hologram;
 import de.jeff_media.jefflib.exceptions.JeffLibNotInitializedException;
 import de.jeff_media.jefflib.exceptions.NMSNotSupportedException;
-import lombok.Getter;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import de.jeff_media.jefflib.internal.hologram.HologramCreationQueue;
+import de.jeff_media.jefflib.internal.hologram.HologramCuller;
+import de.jeff_media.jefflib.internal.hologram.EntityPacketQueue;
+import de.jeff_media.jefflib.internal.hologram.HologramGrid;
+import de.jeff_media.jefflib.internal.hologram.HologramScheduler;
+import de.jeff_media.jefflib.internal.listeners.HologramListener;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
+import org.bukkit.Location;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Manages the visibility of {@link Hologram}s. All holograms are indexed by world and chunk, so that every player only
+ * checks the holograms near them. Visibility is either updated for all players every 5 ticks, or only when a player
+ * moves to another chunk, see {@link UpdateMode}. Periodic hologram updates, see {@link Hologram#update(int)}, are
+ * done by a single task that spreads them evenly across ticks and skips holograms that nobody sees.
+ */
 @UtilityClass
 public class HologramManager {
 
-    @Getter
     private static final List<Hologram> holograms = new ArrayList<>();
-    private static final Map<OfflinePlayer, List<Hologram>> SHOWN_HOLOGRAMS = new HashMap<>();
-    private static boolean IS_SCHEDULED = false;
+    private static final HologramGrid GRID = new HologramGrid();
+    private static final List<Hologram> HOLOGRAMS_VIEW = new AbstractList<Hologram>() {
+        @Override
+        public Hologram get(final int index) {
+            return holograms.get(index);
+        }
+
+        @Override
+        public int size() {
+            return holograms.size();
+        }
+
+        @Override
+        public void add(final int index, final Hologram hologram) {
+            addHologram(hologram);
+        }
+
+        @Override
+        public Hologram remove(final int index) {
+            final Hologram hologram = holograms.get(index);
+            removeHologram(hologram);
+            return hologram;
+        }
+    };
+    /**
+     * Holograms shown to each online player. The sets are synchronized and compare holograms by identity.
+     */
+    private static final Map<UUID, Set<Hologram>> SHOWN_HOLOGRAMS = new ConcurrentHashMap<>();
+    /**
+     * Reverse index of {@link #SHOWN_HOLOGRAMS}: the players that currently see each hologram
+     */
+    private static final Map<Hologram, Set<UUID>> VIEWERS = Collections.synchronizedMap(new IdentityHashMap<>());
+    private static final Set<Player> PENDING_PLAYERS = Collections.newSetFromMap(new IdentityHashMap<>());
+    private static final List<Hologram> NEARBY = new ArrayList<>();
+    private static final HologramCuller CULLER = new HologramCuller(60);
+    private static boolean culling = false;
+    private static final HologramScheduler SCHEDULER = new HologramScheduler(HologramManager::hasViewers, TimeUnit.MILLISECONDS.toNanos(2));
+    @Nullable private static UpdateMode updateMode = null;
+    @Nullable private static BukkitTask pollingTask = null;
+    private static boolean isPendingScheduled = false;
 
     private static final Runnable RUNNABLE = () -> {
-        for(final Player player : Bukkit.getOnlinePlayers()) {
-            for(final Hologram hologram : holograms) {
-                if(!SHOWN_HOLOGRAMS.containsKey(player)) {
-                    SHOWN_HOLOGRAMS.put(player,new ArrayList<>());
+        for (final Player player : Bukkit.getOnlinePlayers()) {
+            updateVisibility(player, player.getLocation());
+        }
+    };
+
+    /**
+     * Gets all registered holograms. Adding or removing holograms through the returned list is the same as calling
+     * {@link #addHologram(Hologram)} or {@link #removeHologram(Hologram)}.
+     *
+     * @return List of all registered holograms
+     */
+    public static List<Hologram> getHolograms() {
+        return HOLOGRAMS_VIEW;
+    }
+
+    /**
+     * Registers a hologram, so that it's shown to nearby players. Does nothing if the hologram is already registered.
+     *
+     * @param hologram Hologram to register
+     * @throws IllegalArgumentException if the hologram's location has no world
+     */
+    public static void addHologram(@NotNull final Hologram hologram) {
+        if (GRID.contains(hologram)) return;
+        // The grid decides whether a hologram is registered, so only add it to the list once the grid accepted it
+        GRID.add(hologram);
+        holograms.add(hologram);
+        updateWorldLater(hologram);
+    }
+
+    /**
+     * Hides a hologram from all players and unregisters it
+     *
+     * @param hologram Hologram to remove
+     */
+    public static void removeHologram(@NotNull final Hologram hologram) {
+        if (!GRID.remove(hologram)) return;
+        holograms.removeIf(registered -> registered == hologram);
+        SCHEDULER.unschedule(hologram);
+        hideFromAll(hologram);
+    }
+
+    /**
+     * Called after a hologram's location or visibility radius has changed
+     *
+     * @param hologram Hologram
+     * @throws IllegalArgumentException if the hologram's new location has no world
+     */
+    public static void updateHologram(@NotNull final Hologram hologram) {
+        if (!GRID.contains(hologram)) return;
+        GRID.update(hologram);
+        hideFromAll(hologram);
+        updateWorldLater(hologram);
+    }
+
+    /**
+     * Hides a hologram from all players that currently see it. It's shown again during the next visibility update.
+     *
+     * @param hologram Hologram to hide
+     */
+    public static void hideFromAll(@NotNull final Hologram hologram) {
+        final Set<UUID> viewers = VIEWERS.remove(hologram);
+        if (viewers == null) return;
+        for (final UUID uuid : viewers) {
+            final Set<Hologram> shown = SHOWN_HOLOGRAMS.get(uuid);
+            if (shown == null || !shown.remove(hologram)) continue;
+            CULLER.removeHologram(uuid, hologram);
+            hologram.onHide(uuid);
+            final Player player = Bukkit.getPlayer(uuid);
+            if (player == null) continue;
+            EntityPacketQueue.hide(player, hologram.getEntities());
+        }
+    }
+
+    /**
+     * Gets all players that currently see a hologram
+     *
+     * @param hologram Hologram
+     * @return List of all players that currently see this hologram
+     */
+    @NotNull
+    public static List<Player> getViewers(@NotNull final Hologram hologram) {
+        final Set<UUID> viewers = VIEWERS.get(hologram);
+        if (viewers == null || viewers.isEmpty()) return Collections.emptyList();
+        final List<Player> players = new ArrayList<>(viewers.size());
+        for (final UUID uuid : viewers) {
+            final Player player = Bukkit.getPlayer(uuid);
+            if (player != null) {
+                players.add(player);
+            }
+        }
+        return players;
+    }
+
+    private static boolean hasViewers(final Hologram hologram) {
+        final Set<UUID> viewers = VIEWERS.get(hologram);
+        return viewers != null && !viewers.isEmpty();
+    }
+
+    /**
+     * Updates a hologram every given amount of ticks
+     *
+     * @param hologram Hologram
+     * @param ticks    Period in ticks, or 0 to stop updating the hologram
+     */
+    @InternalOnly
+    public static void scheduleUpdates(@NotNull final Hologram hologram, final int ticks) {
+        if (ticks > 0) {
+            SCHEDULER.schedule(hologram, ticks);
+        } else {
+            SCHEDULER.unschedule(hologram);
+        }
+    }
+
+    /**
+     * Gets the maximum time spent on periodic hologram updates per tick
+     *
+     * @param unit Time unit
+     * @return Time budget per tick
+     */
+    public static long getUpdateTimeBudget(@NotNull final TimeUnit unit) {
+        return unit.convert(SCHEDULER.getBudgetNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the maximum time spent on periodic hologram updates per tick. Updates that don't fit into a tick are done
+     * during the next tick. Defaults to 2 milliseconds.
+     *
+     * @param budget Time budget per tick
+     * @param unit   Time unit
+     */
+    public static void setUpdateTimeBudget(final long budget, @NotNull final TimeUnit unit) {
+        if (budget < 0) throw new IllegalArgumentException("Time budget must not be negative");
+        SCHEDULER.setBudgetNanos(unit.toNanos(budget));
+    }
+
+    private static void addViewer(final Hologram hologram, final UUID uuid) {
+        VIEWERS.computeIfAbsent(hologram, __ -> ConcurrentHashMap.newKeySet()).add(uuid);
+    }
+
+    private static void removeViewer(final Hologram hologram, final UUID uuid) {
+        synchronized (VIEWERS) {
+            final Set<UUID> viewers = VIEWERS.get(hologram);
+            if (viewers != null && viewers.remove(uuid) && viewers.isEmpty()) {
+                VIEWERS.remove(hologram);
+            }
+        }
+    }
+
+    /**
+     * Updates which holograms a player can see
+     *
+     * @param player   Player
+     * @param location The player's current or new location
+     */
+    @InternalOnly
+    public static void updateVisibility(@NotNull final Player player, @NotNull final Location location) {
+        final Set<Hologram> shown = getShownHolograms(player.getUniqueId());
+
+        // Hide holograms that are out of range
+        synchronized (shown) {
+            final Iterator<Hologram> iterator = shown.iterator();
+            while (iterator.hasNext()) {
+                final Hologram hologram = iterator.next();
+                if (!isInRange(hologram, location) || (culling && !CULLER.isVisible(player, location, hologram, true))) {
+                    iterator.remove();
+                    removeViewer(hologram, player.getUniqueId());
+                    hologram.onHide(player.getUniqueId());
+                    EntityPacketQueue.hide(player, hologram.getEntities());
                 }
+            }
+        }
 
-                // Show hologram
-                if(
-                        !SHOWN_HOLOGRAMS.get(player).contains(hologram)
-                        && (hologram.isVisibleForAnyone() || hologram.getPlayers().contains(player))
-                        && hologram.getLocation().getWorld().equals(player.getWorld())
-                        && hologram.getLocation().distanceSquared(player.getLocation()) <= (hologram.getVisibilityRadius()*hologram.getVisibilityRadius())) {
-                    SHOWN_HOLOGRAMS.get(player).add(hologram);
-                    for(final Object entity : hologram.getEntities()) {
-                        JeffLib.getNMSHandler().showEntityToPlayer(entity, player);
-                    }
-                } else {
+        // Show nearby holograms
+        final List<Hologram> nearby = NEARBY;
+        nearby.clear();
+        GRID.collectNearby(location, nearby);
+        for (final Hologram hologram : nearby) {
+            if (shown.contains(hologram)) continue;
+            if (!hologram.isVisibleForAnyone() && !hologram.hasPlayer(player.getUniqueId())) continue;
+            if (!isInRange(hologram, location)) continue;
+            if (culling && !CULLER.isVisible(player, location, hologram, false)) continue;
+            shown.add(hologram);
+            addViewer(hologram, player.getUniqueId());
+            EntityPacketQueue.show(player, hologram.getEntities());
+            hologram.onShow(player);
+        }
+        nearby.clear();
+    }
 
-                    // Hide hologram
-                    if (!SHOWN_HOLOGRAMS.get(player).contains(hologram))       {
-                        continue;
-                    }
+    /**
+     * Checks whether holograms are culled
+     *
+     * @return true if culling is enabled
+     * @see #setCulling(boolean)
+     */
+    public static boolean isCulling() {
+        return culling;
+    }
 
-                    if(
-                            !hologram.getLocation().getWorld().equals(player.getWorld())
-                            || hologram.getLocation().distanceSquared(player.getLocation()) > (hologram.getVisibilityRadius()*hologram.getVisibilityRadius())) {
-                        SHOWN_HOLOGRAMS.get(player).remove(hologram);
-                        for(final Object entity : hologram.getEntities()) {
-                            JeffLib.getNMSHandler().hideEntityFromPlayer(entity, player);
-                        }
-                    }
+    /**
+     * Enables or disables culling. When enabled, holograms in range are only shown to players that look roughly in their
+     * direction, and that don't have any occluding blocks between their eyes and the hologram. Holograms closer than 4
+     * blocks are always shown. Disabled by default.
+     * <p>
+     * When using {@link UpdateMode#EVENTS}, the visibility is also updated whenever a player turns around or moves to
+     * another block while culling is enabled.
+     *
+     * @param culling Whether to cull holograms
+     */
+    public static void setCulling(final boolean culling) {
+        HologramManager.culling = culling;
+        if (!culling) {
+            CULLER.clear();
+        }
+    }
+
+    /**
+     * Gets the half angle of the view cone used for culling
+     *
+     * @return Half angle in degrees
+     */
+    public static double getCullingAngle() {
+        return CULLER.getAngle();
+    }
+
+    /**
+     * Sets the half angle of the view cone used for culling. Holograms that are already shown are only hidden once they
+     * are 15 degrees further outside. Defaults to 60 degrees.
+     *
+     * @param degrees Half angle in degrees
+     */
+    public static void setCullingAngle(final double degrees) {
+        CULLER.setAngle(degrees);
+    }
+
+    /**
+     * Enables or disables the line-of-sight check of culling. Enabled by default.
+     *
+     * @param occlusion Whether holograms behind occluding blocks are culled
+     */
+    public static void setOcclusionCulling(final boolean occlusion) {
+        CULLER.setOcclusion(occlusion);
+    }
+
+    /**
+     * Checks whether the visibility is updated by events
+     *
+     * @return true when using {@link UpdateMode#EVENTS}
+     */
+    @InternalOnly
+    public static boolean isEventDriven() {
+        return updateMode == UpdateMode.EVENTS;
+    }
+
+    /**
+     * Updates which holograms a player can see at the end of the current tick. Does nothing when using {@link UpdateMode#POLLING}.
+     *
+     * @param player Player
+     */
+    @InternalOnly
+    public static void updateVisibilityLater(@NotNull final Player player) {
+        if (updateMode != UpdateMode.EVENTS) return;
+        PENDING_PLAYERS.add(player);
+        if (!isPendingScheduled) {
+            isPendingScheduled = true;
+            Bukkit.getScheduler().runTask(JeffLib.getPlugin(), HologramManager::updatePendingPlayers);
+        }
+    }
+
+    /**
+     * Removes all information about a player that left
+     *
+     * @param player Player
+     */
+    @InternalOnly
+    public static void removePlayer(@NotNull final Player player) {
+        PENDING_PLAYERS.remove(player);
+        CULLER.removePlayer(player.getUniqueId());
+        final Set<Hologram> shown = SHOWN_HOLOGRAMS.remove(player.getUniqueId());
+        if (shown != null) {
+            synchronized (shown) {
+                for (final Hologram hologram : shown) {
+                    removeViewer(hologram, player.getUniqueId());
+                    hologram.onHide(player.getUniqueId());
                 }
             }
         }
-    };
+        EntityPacketQueue.remove(player.getUniqueId());
+    }
+
+    /**
+     * Gets all holograms that are currently shown to a player
+     *
+     * @param player Player
+     * @return Copy of all holograms shown to this player
+     */
+    @NotNull
+    public static List<Hologram> getShownHolograms(@NotNull final Player player) {
+        final Set<Hologram> shown = SHOWN_HOLOGRAMS.get(player.getUniqueId());
+        if (shown == null) return Collections.emptyList();
+        synchronized (shown) {
+            return new ArrayList<>(shown);
+        }
+    }
+
+    /**
+     * Gets the amount of players that currently have per-player hologram state
+     *
+     * @return Amount of tracked players
+     */
+    public static int getTrackedPlayerCount() {
+        return SHOWN_HOLOGRAMS.size();
+    }
+
+    /**
+     * Gets the amount of viewer slots, that is the total amount of holograms currently shown to all players combined
+     *
+     * @return Amount of viewer slots
+     */
+    public static int getViewerSlotCount() {
+        int count = 0;
+        for (final Set<Hologram> shown : SHOWN_HOLOGRAMS.values()) {
+            count += shown.size();
+        }
+        return count;
+    }
+
+    private static Set<Hologram> getShownHolograms(final UUID uuid) {
+        return SHOWN_HOLOGRAMS.computeIfAbsent(uuid, __ -> Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>())));
+    }
+
+    private static void updateWorldLater(final Hologram hologram) {
+        if (updateMode != UpdateMode.EVENTS || hologram.getLocation().getWorld() == null) return;
+        for (final Player player : hologram.getLocation().getWorld().getPlayers()) {
+            updateVisibilityLater(player);
+        }
+    }
+
+    private static void updatePendingPlayers() {
+        isPendingScheduled = false;
+        for (final Player player : PENDING_PLAYERS.toArray(new Player[0])) {
+            if (player.isOnline()) {
+                updateVisibility(player, player.getLocation());
+            }
+        }
+        PENDING_PLAYERS.clear();
+    }
+
+    private static boolean isInRange(final Hologram hologram, final Location location) {
+        final Location hologramLocation = hologram.getLocation();
+        if (hologramLocation.getWorld() == null || !hologramLocation.getWorld().equals(location.getWorld())) return false;
+        final double radius = hologram.getVisibilityRadius();
+        return hologramLocation.distanceSquared(location) <= radius * radius;
+    }
 
     public static void unloadAllHolograms() {
-        for(final Hologram hologram : holograms) {
-            for(final Player player : Bukkit.getOnlinePlayers()) {
-                if (SHOWN_HOLOGRAMS.containsKey(player)) {
-                    if(SHOWN_HOLOGRAMS.get(player).contains(hologram)) {
-                        SHOWN_HOLOGRAMS.get(player).remove(hologram);
-                        for(final Object entity : hologram.getEntities()) {
-                            JeffLib.getNMSHandler().hideEntityFromPlayer(entity, player);
-                        }
-                    }
+        // Sends the remove packets directly, as this is usually called while the plugin is being disabled
+        EntityPacketQueue.flush();
+        for (final Map.Entry<UUID, Set<Hologram>> entry : SHOWN_HOLOGRAMS.entrySet()) {
+            final Player player = Bukkit.getPlayer(entry.getKey());
+            final List<Object> entities = new ArrayList<>();
+            synchronized (entry.getValue()) {
+                for (final Hologram hologram : entry.getValue()) {
+                    entities.addAll(hologram.getEntities());
+                    hologram.onHide(entry.getKey());
                 }
+                entry.getValue().clear();
+            }
+            if (player != null && !entities.isEmpty()) {
+                JeffLib.getNMSHandler().hideEntitiesFromPlayer(entities, player);
             }
         }
+        VIEWERS.clear();
+        SCHEDULER.clear();
+        CULLER.clear();
         holograms.clear();
+        GRID.clear();
     }
 
 
@@ -82,18 +471,152 @@ public class HologramManager {
         return Hologram.deserialize(section.getValues(false));
     }
 
+    /**
+     * Loads and creates all holograms from a file that has been saved using {@link #saveHologramsAsync(File, Collection)}.
+     * The file is parsed asynchronously and players are only looked up when needed. The holograms are then created on the
+     * main thread in batches that fit into the {@link #setUpdateTimeBudget(long, TimeUnit) time budget} of each tick.
+     *
+     * @param file File to load
+     * @return CompletableFuture that completes on the main thread with all holograms that have been created
+     */
+    @NotNull
+    public static CompletableFuture<List<Hologram>> loadHologramsAsync(@NotNull final File file) {
+        if(JeffLib.getPlugin() == null) {
+            throw new JeffLibNotInitializedException();
+        }
+        final CompletableFuture<List<Hologram>> future = new CompletableFuture<>();
+        Bukkit.getScheduler().runTaskAsynchronously(JeffLib.getPlugin(), () -> {
+            final List<Hologram> loaded = new ArrayList<>();
+            try {
+                final YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+                for (final String key : yaml.getKeys(false)) {
+                    final ConfigurationSection section = yaml.getConfigurationSection(key);
+                    if (section == null) continue;
+                    try {
+                        loaded.add(loadHologram(section));
+                    } catch (final Throwable throwable) {
+                        JeffLib.getPlugin().getLogger().warning("Could not load hologram " + key + " from " + file.getName() + ": " + throwable.getMessage());
+                    }
+                }
+            } catch (final Throwable throwable) {
+                future.completeExceptionally(throwable);
+                return;
+            }
+            HologramCreationQueue.createAll(loaded, SCHEDULER::getBudgetNanos).whenComplete((created, throwable) -> {
+                if (throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else {
+                    future.complete(created);
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Saves all registered holograms asynchronously
+     *
+     * @param file File to save to
+     * @return CompletableFuture that completes when the file has been written
+     * @see #saveHologramsAsync(File, Collection)
+     */
+    @NotNull
+    public static CompletableFuture<Void> saveHologramsAsync(@NotNull final File file) {
+        return saveHologramsAsync(file, holograms);
+    }
 
+    /**
+     * Saves the given holograms asynchronously. The holograms are serialized on the calling thread, which should be the
+     * main thread, while building the YAML and writing the file happens asynchronously.
+     *
+     * @param file      File to save to
+     * @param holograms Holograms to save
+     * @return CompletableFuture that completes when the file has been written
+     */
+    @NotNull
+    public static CompletableFuture<Void> saveHologramsAsync(@NotNull final File file, @NotNull final Collection<Hologram> holograms) {
+        if(JeffLib.getPlugin() == null) {
+            throw new JeffLibNotInitializedException();
+        }
+        final List<Map<String, Object>> serialized = new ArrayList<>(holograms.size());
+        for (final Hologram hologram : holograms) {
+            serialized.add(hologram.serialize());
+        }
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        Bukkit.getScheduler().runTaskAsynchronously(JeffLib.getPlugin(), () -> {
+            try {
+                final YamlConfiguration yaml = new YamlConfiguration();
+                for (int i = 0; i < serialized.size(); i++) {
+                    yaml.createSection(String.valueOf(i), serialized.get(i));
+                }
+                yaml.save(file);
+                future.complete(null);
+            } catch (final Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+        });
+        return future;
+    }
+
+
+    /**
+     * Starts updating the visibility of holograms every 5 ticks, unless another {@link UpdateMode} has already been set
+     */
     public static void init() {
+        init(updateMode == null ? UpdateMode.POLLING : updateMode);
+    }
+
+    /**
+     * Starts updating the visibility of holograms using the given mode
+     *
+     * @param mode Update mode
+     */
+    public static void init(@NotNull final UpdateMode mode) {
 
         if(JeffLib.getPlugin() == null) {
             throw new JeffLibNotInitializedException();
         }
         NMSNotSupportedException.check();
 
-        if(!IS_SCHEDULED) {
-            IS_SCHEDULED = true;
-            Bukkit.getScheduler().runTaskTimer(JeffLib.getPlugin(),RUNNABLE,5,5);
+        if (mode == updateMode) return;
+        if (updateMode == null) {
+            Bukkit.getPluginManager().registerEvents(new HologramListener(), JeffLib.getPlugin());
+        }
+        updateMode = mode;
+        if (pollingTask != null) {
+            pollingTask.cancel();
+            pollingTask = null;
         }
+        if (mode == UpdateMode.POLLING) {
+            pollingTask = Bukkit.getScheduler().runTaskTimer(JeffLib.getPlugin(), RUNNABLE, 5, 5);
+        } else {
+            Bukkit.getScheduler().runTask(JeffLib.getPlugin(), RUNNABLE);
+        }
+    }
+
+    /**
+     * Gets the current update mode
+     *
+     * @return Current update mode, or null if {@link #init()} hasn't been called yet
+     */
+    @Nullable
+    public static UpdateMode getUpdateMode() {
+        return updateMode;
+    }
+
+    /**
+     * Describes when the visibility of holograms is updated
+     */
+    public enum UpdateMode {
+        /**
+         * Checks all players every 5 ticks
+         */
+        POLLING,
+        /**
+         * Only checks players when they move to another chunk, teleport, change worlds, respawn or join, and when a hologram
+         * has been added or moved. Players don't cause any work while they don't move.
+         */
+        EVENTS
     }
 
 }
@@ -1,5 +1,8 @@
 package de.jeff_media.jefflib;
 
+import de.jeff_media.jefflib.internal.serialization.BulkItemSerializer;
+import de.jeff_media.jefflib.internal.serialization.ByteBufferStreams;
+import de.jeff_media.jefflib.internal.serialization.CompactItemCodec;
 import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
@@ -8,16 +11,33 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.util.io.BukkitObjectInputStream;
 import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.jetbrains.annotations.NotNull;
 import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Provides methods to serialize and deserialize ItemStacks, ItemStack arrays and Inventories to/from byte arrays and/or base64
+ * <p>
+ * Besides the {@link BukkitObjectOutputStream} based format, there's a compact binary format (see {@link #toCompactBytes(ItemStack)})
+ * that is much smaller and faster. It stores the same data, so both formats can be converted into each other.
  */
 @UtilityClass
 public final class ItemSerializer {
@@ -214,4 +234,401 @@ public final class ItemSerializer {
             throw new IOException("Unable to decode class type.", e);
         }
     }
+
+    /**
+     * Turns an ItemStack into a byte array using the compact binary format. The result starts with a header containing the
+     * server's DataVersion, so items can be upgraded when they are read by a newer version.
+     *
+     * @param itemStack ItemStack, or null
+     * @return ItemStack as compact byte array
+     * @throws IOException exception
+     */
+    public static byte[] toCompactBytes(final ItemStack itemStack) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(64);
+        final DataOutputStream dataOutput = new DataOutputStream(outputStream);
+        CompactItemCodec.writeHeader(dataOutput);
+        CompactItemCodec.writeItem(dataOutput, itemStack);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Turns a byte array created by {@link #toCompactBytes(ItemStack)} into an ItemStack
+     *
+     * @param input compact byte array
+     * @return ItemStack, or null if null has been serialized
+     * @throws IOException exception
+     */
+    public static ItemStack fromCompactBytes(final byte[] input) throws IOException {
+        final DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(input));
+        final int dataVersion = CompactItemCodec.readHeader(dataInput);
+        return CompactItemCodec.readItem(dataInput, dataVersion);
+    }
+
+    /**
+     * Turns an ItemStack array into a byte array using the compact binary format and {@link Encoding#PLAIN}
+     *
+     * @param items ItemStack array, may contain null
+     * @return ItemStack array as compact byte array
+     * @throws IOException exception
+     */
+    public static byte[] itemStackArrayToCompactBytes(final ItemStack[] items) throws IOException {
+        return itemStackArrayToCompactBytes(items, Encoding.PLAIN);
+    }
+
+    /**
+     * Turns an ItemStack array into a byte array using the compact binary format and the given encoding
+     *
+     * @param items    ItemStack array, may contain null
+     * @param encoding Encoding
+     * @return ItemStack array as compact byte array
+     * @throws IOException exception
+     */
+    public static byte[] itemStackArrayToCompactBytes(final ItemStack[] items, @NotNull final Encoding encoding) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(16 + items.length * 16);
+        CompactItemCodec.writeArray(new DataOutputStream(outputStream), items, encoding);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Turns a byte array created by {@link #itemStackArrayToCompactBytes(ItemStack[])} into an ItemStack array
+     *
+     * @param input compact byte array
+     * @return ItemStack array
+     * @throws IOException exception
+     */
+    public static ItemStack[] itemStackArrayFromCompactBytes(final byte[] input) throws IOException {
+        return readItems(new ByteArrayInputStream(input));
+    }
+
+    /**
+     * Checks whether a byte array uses the compact binary format
+     *
+     * @param input byte array
+     * @return true if the bytes have been created by one of the compact methods, false if they use the {@link BukkitObjectOutputStream} format
+     */
+    public static boolean isCompact(final byte[] input) {
+        return CompactItemCodec.isCompact(input);
+    }
+
+    /**
+     * Turns a byte array in either format into an ItemStack. Useful while stored items are migrated to the compact format.
+     *
+     * @param input byte array created by {@link #toBytes(ItemStack)} or {@link #toCompactBytes(ItemStack)}
+     * @return ItemStack
+     * @throws IOException exception
+     */
+    public static ItemStack fromAnyBytes(final byte[] input) throws IOException {
+        return isCompact(input) ? fromCompactBytes(input) : fromBytes(input);
+    }
+
+    /**
+     * Converts a byte array created by {@link #toBytes(ItemStack)} into the compact format
+     *
+     * @param input byte array in the {@link BukkitObjectOutputStream} format
+     * @return compact byte array
+     * @throws IOException exception
+     */
+    public static byte[] toCompactBytes(final byte[] input) throws IOException {
+        return isCompact(input) ? input : toCompactBytes(fromBytes(input));
+    }
+
+    /**
+     * Converts a byte array created by {@link #toCompactBytes(ItemStack)} back into the {@link BukkitObjectOutputStream} format
+     *
+     * @param input compact byte array
+     * @return byte array in the {@link BukkitObjectOutputStream} format
+     * @throws IOException exception
+     */
+    public static byte[] fromCompactToBytes(final byte[] input) throws IOException {
+        return isCompact(input) ? toBytes(fromCompactBytes(input)) : input;
+    }
+
+    /**
+     * Writes an ItemStack array in the compact binary format directly into an OutputStream. The stream is flushed, but not closed.
+     *
+     * @param items        ItemStack array, may contain null
+     * @param outputStream OutputStream to write to
+     * @throws IOException exception
+     */
+    public static void writeItems(final ItemStack[] items, final OutputStream outputStream) throws IOException {
+        writeItems(items, outputStream, Encoding.PLAIN);
+    }
+
+    /**
+     * Writes an ItemStack array in the compact binary format and the given encoding directly into an OutputStream. The
+     * stream is flushed, but not closed.
+     *
+     * @param items        ItemStack array, may contain null
+     * @param outputStream OutputStream to write to
+     * @param encoding     Encoding
+     * @throws IOException exception
+     */
+    public static void writeItems(final ItemStack[] items, final OutputStream outputStream, @NotNull final Encoding encoding) throws IOException {
+        final DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(outputStream));
+        CompactItemCodec.writeArray(dataOutput, items, encoding);
+        dataOutput.flush();
+    }
+
+    /**
+     * Writes the contents of an Inventory in the compact binary format directly into an OutputStream. The stream is flushed, but not closed.
+     *
+     * @param inventory    Inventory
+     * @param outputStream OutputStream to write to
+     * @throws IOException exception
+     */
+    public static void writeInventory(final Inventory inventory, final OutputStream outputStream) throws IOException {
+        writeInventory(inventory, outputStream, Encoding.PLAIN);
+    }
+
+    /**
+     * Writes the contents of an Inventory in the compact binary format and the given encoding directly into an OutputStream.
+     * The stream is flushed, but not closed.
+     *
+     * @param inventory    Inventory
+     * @param outputStream OutputStream to write to
+     * @param encoding     Encoding
+     * @throws IOException exception
+     */
+    public static void writeInventory(final Inventory inventory, final OutputStream outputStream, @NotNull final Encoding encoding) throws IOException {
+        writeItems(getContents(inventory), outputStream, encoding);
+    }
+
+    /**
+     * Writes an ItemStack array in the compact binary format directly into a channel. The channel is not closed.
+     *
+     * @param items   ItemStack array, may contain null
+     * @param channel Channel to write to
+     * @throws IOException exception
+     */
+    public static void writeItems(final ItemStack[] items, final WritableByteChannel channel) throws IOException {
+        writeItems(items, channel, Encoding.PLAIN);
+    }
+
+    /**
+     * Writes an ItemStack array in the compact binary format and the given encoding directly into a channel. The channel is not closed.
+     *
+     * @param items    ItemStack array, may contain null
+     * @param channel  Channel to write to
+     * @param encoding Encoding
+     * @throws IOException exception
+     */
+    public static void writeItems(final ItemStack[] items, final WritableByteChannel channel, @NotNull final Encoding encoding) throws IOException {
+        writeItems(items, Channels.newOutputStream(channel), encoding);
+    }
+
+    /**
+     * Writes the contents of an Inventory in the compact binary format directly into a channel. The channel is not closed.
+     *
+     * @param inventory Inventory
+     * @param channel   Channel to write to
+     * @throws IOException exception
+     */
+    public static void writeInventory(final Inventory inventory, final WritableByteChannel channel) throws IOException {
+        writeInventory(inventory, channel, Encoding.PLAIN);
+    }
+
+    /**
+     * Writes the contents of an Inventory in the compact binary format and the given encoding directly into a channel. The
+     * channel is not closed.
+     *
+     * @param inventory Inventory
+     * @param channel   Channel to write to
+     * @param encoding  Encoding
+     * @throws IOException exception
+     */
+    public static void writeInventory(final Inventory inventory, final WritableByteChannel channel, @NotNull final Encoding encoding) throws IOException {
+        writeItems(getContents(inventory), Channels.newOutputStream(channel), encoding);
+    }
+
+    /**
+     * Writes an ItemStack array in the compact binary format into a ByteBuffer, starting at its current position
+     *
+     * @param items  ItemStack array, may contain null
+     * @param buffer ByteBuffer to write to, e.g. a pooled direct buffer
+     * @throws IOException                    exception
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough space left
+     */
+    public static void writeItems(final ItemStack[] items, final ByteBuffer buffer) throws IOException {
+        writeItems(items, buffer, Encoding.PLAIN);
+    }
+
+    /**
+     * Writes an ItemStack array in the compact binary format and the given encoding into a ByteBuffer, starting at its current position
+     *
+     * @param items    ItemStack array, may contain null
+     * @param buffer   ByteBuffer to write to, e.g. a pooled direct buffer
+     * @param encoding Encoding
+     * @throws IOException                    exception
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough space left
+     */
+    public static void writeItems(final ItemStack[] items, final ByteBuffer buffer, @NotNull final Encoding encoding) throws IOException {
+        CompactItemCodec.writeArray(new DataOutputStream(ByteBufferStreams.output(buffer)), items, encoding);
+    }
+
+    /**
+     * Writes the contents of an Inventory in the compact binary format into a ByteBuffer, starting at its current position
+     *
+     * @param inventory Inventory
+     * @param buffer    ByteBuffer to write to, e.g. a pooled direct buffer
+     * @throws IOException                    exception
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough space left
+     */
+    public static void writeInventory(final Inventory inventory, final ByteBuffer buffer) throws IOException {
+        writeInventory(inventory, buffer, Encoding.PLAIN);
+    }
+
+    /**
+     * Writes the contents of an Inventory in the compact binary format and the given encoding into a ByteBuffer, starting
+     * at its current position
+     *
+     * @param inventory Inventory
+     * @param buffer    ByteBuffer to write to, e.g. a pooled direct buffer
+     * @param encoding  Encoding
+     * @throws IOException                    exception
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough space left
+     */
+    public static void writeInventory(final Inventory inventory, final ByteBuffer buffer, @NotNull final Encoding encoding) throws IOException {
+        writeItems(getContents(inventory), buffer, encoding);
+    }
+
+    /**
+     * Reads an ItemStack array written by one of the compact methods from an InputStream. Reads exactly the bytes that belong
+     * to the array, so the stream can contain more data afterwards. The stream is not closed.
+     *
+     * @param inputStream InputStream to read from
+     * @return ItemStack array
+     * @throws IOException exception
+     */
+    public static ItemStack[] readItems(final InputStream inputStream) throws IOException {
+        return readItems((DataInput) new DataInputStream(inputStream));
+    }
+
+    /**
+     * Reads an Inventory written by one of the compact methods from an InputStream. Reads exactly the bytes that belong to
+     * the inventory, so the stream can contain more data afterwards. The stream is not closed.
+     *
+     * @param inputStream InputStream to read from
+     * @return Inventory
+     * @throws IOException exception
+     */
+    public static Inventory readInventory(final InputStream inputStream) throws IOException {
+        return toInventory(readItems(inputStream));
+    }
+
+    /**
+     * Reads an ItemStack array written by one of the compact methods from a channel. The channel is read using a buffer, so
+     * it should not contain any other data afterwards. The channel is not closed.
+     *
+     * @param channel Channel to read from
+     * @return ItemStack array
+     * @throws IOException exception
+     */
+    public static ItemStack[] readItems(final ReadableByteChannel channel) throws IOException {
+        return readItems(new BufferedInputStream(Channels.newInputStream(channel)));
+    }
+
+    /**
+     * Reads an Inventory written by one of the compact methods from a channel. The channel is read using a buffer, so it
+     * should not contain any other data afterwards. The channel is not closed.
+     *
+     * @param channel Channel to read from
+     * @return Inventory
+     * @throws IOException exception
+     */
+    public static Inventory readInventory(final ReadableByteChannel channel) throws IOException {
+        return toInventory(readItems(channel));
+    }
+
+    /**
+     * Reads an ItemStack array written by one of the compact methods from a ByteBuffer, starting at its current position.
+     * Afterwards, the position is right behind the array.
+     *
+     * @param buffer ByteBuffer to read from
+     * @return ItemStack array
+     * @throws IOException exception
+     */
+    public static ItemStack[] readItems(final ByteBuffer buffer) throws IOException {
+        return readItems(ByteBufferStreams.input(buffer));
+    }
+
+    /**
+     * Reads an Inventory written by one of the compact methods from a ByteBuffer, starting at its current position.
+     * Afterwards, the position is right behind the inventory.
+     *
+     * @param buffer ByteBuffer to read from
+     * @return Inventory
+     * @throws IOException exception
+     */
+    public static Inventory readInventory(final ByteBuffer buffer) throws IOException {
+        return toInventory(readItems(buffer));
+    }
+
+    private static ItemStack[] getContents(final Inventory inventory) {
+        final ItemStack[] items = new ItemStack[inventory.getSize()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = inventory.getItem(i);
+        }
+        return items;
+    }
+
+    private static ItemStack[] readItems(final DataInput dataInput) throws IOException {
+        return CompactItemCodec.readArray(dataInput);
+    }
+
+    private static Inventory toInventory(final ItemStack[] items) {
+        final Inventory inventory = Bukkit.getServer().createInventory(null, items.length);
+        for (int i = 0; i < items.length; i++) {
+            inventory.setItem(i, items[i]);
+        }
+        return inventory;
+    }
+
+    /**
+     * Serializes many ItemStack arrays at once, e.g. during autosave or shutdown, using the compact format and
+     * {@link Encoding#PLAIN}. See {@link #serializeAllAsync(Map, Encoding)}.
+     *
+     * @param inventories Item arrays by key, e.g. by player UUID
+     * @param <K>         Key type
+     * @return CompletableFuture that completes with the serialized arrays, in the same order as the given map
+     */
+    public static <K> CompletableFuture<Map<K, byte[]>> serializeAllAsync(@NotNull final Map<K, ItemStack[]> inventories) {
+        return serializeAllAsync(inventories, Encoding.PLAIN);
+    }
+
+    /**
+     * Serializes many ItemStack arrays at once, e.g. during autosave or shutdown. The items are copied on the calling
+     * thread, which should be the main thread. The copies are then serialized in parallel on a small pool of worker
+     * threads, using the compact format and the given encoding.
+     * <p>
+     * The worker threads are stopped when your plugin gets disabled. When this is called in onDisable, the items are
+     * serialized on the calling thread instead, so the returned future is already complete.
+     *
+     * @param inventories Item arrays by key, e.g. by player UUID
+     * @param encoding    Encoding
+     * @param <K>         Key type
+     * @return CompletableFuture that completes with the serialized arrays, in the same order as the given map. It completes
+     * exceptionally if any array could not be serialized.
+     */
+    public static <K> CompletableFuture<Map<K, byte[]>> serializeAllAsync(@NotNull final Map<K, ItemStack[]> inventories, @NotNull final Encoding encoding) {
+        return BulkItemSerializer.serializeAll(inventories, encoding);
+    }
+
+    /**
+     * Encodings for ItemStack arrays and inventories in the compact format
+     */
+    public enum Encoding {
+        /**
+         * Writes every slot separately
+         */
+        PLAIN,
+        /**
+         * Writes runs of empty slots and identical items only once, and lets items that are similar to an earlier item
+         * reference it instead of being written again
+         */
+        DEDUPLICATED,
+        /**
+         * Like {@link #DEDUPLICATED}, and additionally compresses the result using DEFLATE
+         */
+        COMPRESSED
+    }
 }
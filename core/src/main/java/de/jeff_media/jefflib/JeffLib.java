@@ -2,9 +2,11 @@ package de.jeff_media.jefflib;
 
 import de.jeff_media.jefflib.data.Hologram;
 import de.jeff_media.jefflib.exceptions.JeffLibNotInitializedException;
+import de.jeff_media.jefflib.internal.blocktracker.BlockTrackerCache;
 import de.jeff_media.jefflib.internal.nms.AbstractNMSHandler;
 import de.jeff_media.jefflib.internal.listeners.BlockTrackListener;
 import de.jeff_media.jefflib.internal.listeners.PlayerScrollListener;
+import de.jeff_media.jefflib.internal.serialization.BulkItemSerializer;
 import lombok.Getter;
 import lombok.experimental.UtilityClass;
 import org.bukkit.Bukkit;
@@ -74,6 +76,7 @@ public final class JeffLib {
     public static void registerBlockTracker() {
         if (McVersion.isAtLeast(1, 16, 3)) {
             Bukkit.getPluginManager().registerEvents(new BlockTrackListener(), main);
+            BlockTrackerCache.enable();
         } else {
             main.getLogger().info("You are using an MC version below 1.16.3 - Block Tracking features will be disabled.");
         }
@@ -87,6 +90,7 @@ public final class JeffLib {
     public static void init(final Plugin plugin) {
         main = plugin;
         ConfigurationSerialization.registerClass(Hologram.class,plugin.getName().toLowerCase(Locale.ROOT)+"-hologram");
+        BulkItemSerializer.registerShutdownListener();
 
         try {
             version = FileUtils.readFileFromResources(plugin, "jefflib.version").get(0);
@@ -0,0 +1,191 @@
+package de.jeff_media.jefflib.data;
+
+import de.jeff_media.jefflib.BlockTracker;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of the {@link BlockTracker}'s statistics for one world, see {@link BlockTracker#getStats(org.bukkit.World, int)}
+ */
+public final class BlockTrackerStats {
+
+    /**
+     * Name of the world
+     */
+    @Getter
+    @NotNull
+    private final String world;
+
+    /**
+     * Amount of chunks whose tracking data is currently kept in memory
+     */
+    @Getter
+    private final int cachedChunks;
+
+    /**
+     * Amount of tracked blocks in all cached chunks
+     */
+    @Getter
+    private final long trackedBlocks;
+
+    /**
+     * Approximate amount of bytes that the cached chunks' tracking data takes up inside their PersistentDataContainers
+     */
+    @Getter
+    private final long storedBytes;
+
+    /**
+     * Cached chunks with the most stored bytes, heaviest first
+     */
+    @Getter
+    @NotNull
+    private final List<ChunkStats> heaviestChunks;
+
+    /**
+     * Latency of all queries since the last reset. Shared between all worlds.
+     */
+    @Getter
+    @NotNull
+    private final Histogram queries;
+
+    /**
+     * Latency of all updates since the last reset. Shared between all worlds.
+     */
+    @Getter
+    @NotNull
+    private final Histogram updates;
+
+    public BlockTrackerStats(@NotNull final String world, final int cachedChunks, final long trackedBlocks, final long storedBytes,
+                             @NotNull final List<ChunkStats> heaviestChunks, @NotNull final Histogram queries, @NotNull final Histogram updates) {
+        this.world = world;
+        this.cachedChunks = cachedChunks;
+        this.trackedBlocks = trackedBlocks;
+        this.storedBytes = storedBytes;
+        this.heaviestChunks = Collections.unmodifiableList(heaviestChunks);
+        this.queries = queries;
+        this.updates = updates;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockTrackerStats{" +
+                "world=" + world +
+                ", cachedChunks=" + cachedChunks +
+                ", trackedBlocks=" + trackedBlocks +
+                ", storedBytes=" + storedBytes +
+                ", heaviestChunks=" + heaviestChunks +
+                ", queries=" + queries +
+                ", updates=" + updates +
+                '}';
+    }
+
+    /**
+     * Statistics of a single chunk
+     */
+    public static final class ChunkStats {
+
+        @Getter
+        private final int x;
+
+        @Getter
+        private final int z;
+
+        @Getter
+        private final int trackedBlocks;
+
+        @Getter
+        private final int storedBytes;
+
+        public ChunkStats(final int x, final int z, final int trackedBlocks, final int storedBytes) {
+            this.x = x;
+            this.z = z;
+            this.trackedBlocks = trackedBlocks;
+            this.storedBytes = storedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "ChunkStats{" +
+                    "x=" + x +
+                    ", z=" + z +
+                    ", trackedBlocks=" + trackedBlocks +
+                    ", storedBytes=" + storedBytes +
+                    '}';
+        }
+    }
+
+    /**
+     * Latency histogram with power-of-two buckets. Bucket i counts all calls that took between 2^i and 2^(i+1) nanoseconds.
+     */
+    public static final class Histogram {
+
+        private final long[] buckets;
+
+        @Getter
+        private final long count;
+
+        @Getter
+        private final long totalNanos;
+
+        @Getter
+        private final long maxNanos;
+
+        public Histogram(@NotNull final long[] buckets, final long count, final long totalNanos, final long maxNanos) {
+            this.buckets = buckets.clone();
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Gets the amount of calls per bucket
+         *
+         * @return Copy of the bucket counts
+         */
+        @NotNull
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        /**
+         * Gets the average latency
+         *
+         * @return Average latency in nanoseconds, or 0 if nothing has been recorded
+         */
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Gets an upper bound for the given percentile, e.g. 0.99 for the 99th percentile
+         *
+         * @param percentile Percentile between 0 and 1
+         * @return Upper bound of the bucket containing the percentile in nanoseconds, or 0 if nothing has been recorded
+         */
+        public long getPercentileNanos(final double percentile) {
+            if (count == 0) return 0;
+            final long target = (long) Math.ceil(count * Math.min(1, Math.max(0, percentile)));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= Math.max(1, target)) {
+                    return Math.min(maxNanos, (1L << (i + 1)) - 1);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{" +
+                    "count=" + count +
+                    ", meanNanos=" + getMeanNanos() +
+                    ", p99Nanos=" + getPercentileNanos(0.99) +
+                    ", maxNanos=" + maxNanos +
+                    '}';
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.google.common.base.Enums;
 import de.jeff_media.jefflib.JeffLib;
 import de.jeff_media.jefflib.HologramManager;
 import de.jeff_media.jefflib.TextUtils;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import de.jeff_media.jefflib.internal.hologram.EntityPacketQueue;
+import de.jeff_media.jefflib.internal.hologram.HologramRenderer;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
@@ -23,7 +26,14 @@ public class Hologram implements ConfigurationSerializable {
     private static final double LINE_OFFSET_DEFAULT = -0.25;
     private static final boolean VISIBLE_FOR_ANYONE_DEFAULT = true;
     private static final double VISIBILITY_RADIUS_DEFAULT = 64;
-    private Integer task = null;
+    /**
+     * Lines as they have been sent to the viewers the last time, used to only update lines that have changed
+     */
+    private List<String> sentLines = Collections.emptyList();
+    /**
+     * Player-specific lines as they have been sent to each viewer the last time. Only used with per-viewer placeholders.
+     */
+    private final Map<UUID, String[]> sentViewerLines = new HashMap<>();
 
     public Hologram(final Type type) {
         this.type = type;
@@ -38,19 +48,43 @@ public class Hologram implements ConfigurationSerializable {
         return TextUtils.format(lines, player);
     }
 
+    /**
+     * Formats all lines again and sends the lines that have changed to all players that currently see this hologram
+     */
     @SneakyThrows
     public void update() {
         if(lines.size() == entities.size()) {
-            for (int i = 0; i < lines.size(); i++) {
-                JeffLib.getNMSHandler().changeNMSEntityName(entities.get(i), format().get(i));
+            final List<String> formatted = format();
+            List<Player> viewers = null;
+            for (int i = 0; i < formatted.size(); i++) {
+                final String line = formatted.get(i);
+                if (i < sentLines.size() && line.equals(sentLines.get(i))) continue;
+                if (perViewerPlaceholders && HologramRenderer.isPlayerSpecific(lines.get(i))) {
+                    // Viewers get their own version of this line below
+                    JeffLib.getNMSHandler().changeNMSEntityName(entities.get(i), line, Collections.emptyList());
+                    continue;
+                }
+                if (viewers == null) {
+                    viewers = HologramManager.getViewers(this);
+                }
+                JeffLib.getNMSHandler().changeNMSEntityName(entities.get(i), line, viewers);
             }
-        } else {
-            for(final Object entity : entities) {
-                for(final Player player : Bukkit.getOnlinePlayers()) {
-                    JeffLib.getNMSHandler().hideEntityFromPlayer(entity, player);
+            sentLines = formatted;
+            if (perViewerPlaceholders) {
+                for (final Player viewer : HologramManager.getViewers(this)) {
+                    sendViewerLines(viewer);
                 }
             }
-            create();
+        } else {
+            // The line count has changed, so all entities are replaced. The previous viewers get the new entities during
+            // their next visibility update, which is scheduled right away when using event-driven updates.
+            final List<Player> viewers = HologramManager.getViewers(this);
+            HologramManager.hideFromAll(this);
+            entities.clear();
+            createEntities();
+            for (final Player viewer : viewers) {
+                HologramManager.updateVisibilityLater(viewer);
+            }
         }
     }
 
@@ -59,11 +93,25 @@ public class Hologram implements ConfigurationSerializable {
     @Nullable
     private OfflinePlayer player;
 
+    /**
+     * Whether placeholders are replaced for every viewer separately. Lines without placeholders are still only rendered once.
+     */
     @Getter
-    private final Type type;
+    @Setter
+    private boolean perViewerPlaceholders = false;
 
+    /**
+     * Whether the lines only exist as packets, without server-side entities. Uses less memory per line and allows to
+     * create holograms off the main thread. Must be set before calling {@link #create()}.
+     */
     @Getter
     @Setter
+    private boolean packetOnly = false;
+
+    @Getter
+    private final Type type;
+
+    @Getter
     @NotNull
     private Location location;
 
@@ -81,13 +129,57 @@ public class Hologram implements ConfigurationSerializable {
     private boolean isVisibleForAnyone = VISIBLE_FOR_ANYONE_DEFAULT;
 
     @Getter
-    @Setter
     private double visibilityRadius = VISIBILITY_RADIUS_DEFAULT;
 
-    @Getter
+    public void setLocation(@NotNull final Location location) {
+        this.location = location;
+        HologramManager.updateHologram(this);
+    }
+
+    public void setVisibilityRadius(final double visibilityRadius) {
+        this.visibilityRadius = visibilityRadius;
+        HologramManager.updateHologram(this);
+    }
+
     @NotNull
     private final List<OfflinePlayer> players = new ArrayList<>();
 
+    /**
+     * Players that have been loaded from a file but not yet resolved to {@link OfflinePlayer}s, as this can block
+     */
+    private final Set<UUID> unresolvedPlayers = new LinkedHashSet<>();
+
+    /**
+     * Gets the players that can see this hologram when it's not visible for anyone. Players loaded from a file are only
+     * looked up when calling this method for the first time.
+     *
+     * @return Modifiable list of players
+     */
+    @NotNull
+    public List<OfflinePlayer> getPlayers() {
+        if (!unresolvedPlayers.isEmpty()) {
+            for (final UUID uuid : unresolvedPlayers) {
+                players.add(Bukkit.getOfflinePlayer(uuid));
+            }
+            unresolvedPlayers.clear();
+        }
+        return players;
+    }
+
+    /**
+     * Checks whether a player is in the list of players that can see this hologram, without looking up any players
+     *
+     * @param uuid Player's UUID
+     * @return true if the player is in {@link #getPlayers()}
+     */
+    public boolean hasPlayer(@NotNull final UUID uuid) {
+        if (unresolvedPlayers.contains(uuid)) return true;
+        for (final OfflinePlayer player : players) {
+            if (player.getUniqueId().equals(uuid)) return true;
+        }
+        return false;
+    }
+
     @Getter
     @NotNull
     private final List<Object> entities = new ArrayList<>();
@@ -97,12 +189,23 @@ public class Hologram implements ConfigurationSerializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         final Hologram hologram = (Hologram) o;
-        return Double.compare(hologram.lineOffset, lineOffset) == 0 && isVisibleForAnyone == hologram.isVisibleForAnyone && Double.compare(hologram.visibilityRadius, visibilityRadius) == 0 && type == hologram.type && location.equals(hologram.location) && lines.equals(hologram.lines) && players.equals(hologram.players) && entities.equals(hologram.entities);
+        return Double.compare(hologram.lineOffset, lineOffset) == 0 && isVisibleForAnyone == hologram.isVisibleForAnyone && Double.compare(hologram.visibilityRadius, visibilityRadius) == 0 && type == hologram.type && location.equals(hologram.location) && lines.equals(hologram.lines) && getPlayerIds().equals(hologram.getPlayerIds()) && entities.equals(hologram.entities);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, location, lineOffset, lines, isVisibleForAnyone, visibilityRadius, players, entities);
+        return Objects.hash(type, location, lineOffset, lines, isVisibleForAnyone, visibilityRadius, getPlayerIds(), entities);
+    }
+
+    /**
+     * Gets the UUIDs of all players in {@link #getPlayers()}, without looking up any players
+     */
+    private Set<UUID> getPlayerIds() {
+        final Set<UUID> uuids = new HashSet<>(unresolvedPlayers);
+        for (final OfflinePlayer player : players) {
+            uuids.add(player.getUniqueId());
+        }
+        return uuids;
     }
 
     @Override
@@ -115,31 +218,83 @@ public class Hologram implements ConfigurationSerializable {
                 ", isVisibleForAnyone=" + isVisibleForAnyone +
                 ", visibilityRadius=" + visibilityRadius +
                 ", players=" + players +
+                ", unresolvedPlayers=" + unresolvedPlayers +
                 ", entities=" + entities +
                 '}';
     }
 
+    /**
+     * Calls {@link #update()} every given amount of ticks while anyone can see this hologram. Replaces the previous period.
+     *
+     * @param ticks Period in ticks, or 0 to stop updating this hologram
+     * @see HologramManager#setUpdateTimeBudget(long, java.util.concurrent.TimeUnit)
+     */
     public void update(final int ticks) {
-        if(task != null) {
-            Bukkit.getScheduler().cancelTask(task);
+        HologramManager.scheduleUpdates(this, ticks);
+    }
+
+    /**
+     * Called when this hologram has been shown to a player. Sends the player-specific lines when using per-viewer placeholders.
+     *
+     * @param viewer Player that now sees this hologram
+     */
+    @InternalOnly
+    public void onShow(@NotNull final Player viewer) {
+        if (perViewerPlaceholders) {
+            sentViewerLines.remove(viewer.getUniqueId());
+            sendViewerLines(viewer);
         }
-        if(ticks > 0) {
-            task = Bukkit.getScheduler().scheduleSyncRepeatingTask(JeffLib.getPlugin(), this::update, ticks, ticks);
+    }
+
+    /**
+     * Called when this hologram has been hidden from a player
+     *
+     * @param viewer UUID of the player that doesn't see this hologram anymore
+     */
+    @InternalOnly
+    public void onHide(@NotNull final UUID viewer) {
+        sentViewerLines.remove(viewer);
+    }
+
+    private void sendViewerLines(final Player viewer) {
+        if (lines.size() != entities.size()) return;
+        final String[] sent = sentViewerLines.computeIfAbsent(viewer.getUniqueId(), uuid -> new String[lines.size()]);
+        if (sent.length != lines.size()) {
+            sentViewerLines.remove(viewer.getUniqueId());
+            sendViewerLines(viewer);
+            return;
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i);
+            if (!HologramRenderer.isPlayerSpecific(line)) continue;
+            final String rendered = HologramRenderer.render(line, viewer);
+            if (rendered.equals(sent[i])) continue;
+            sent[i] = rendered;
+            EntityPacketQueue.rename(viewer, entities.get(i), rendered);
         }
     }
 
     public void create() {
+        createEntities();
+        HologramManager.addHologram(this);
+    }
+
+    private void createEntities() {
         Location current = location.clone();
-        for(final String line : format()) {
-            System.out.println("Creating hologram line: " + line);
-            final Object entity = JeffLib.getNMSHandler().createHologram(current, line, type);
+        sentLines = format();
+        for(final String line : sentLines) {
+            final Object entity = packetOnly
+                    ? JeffLib.getNMSHandler().createPacketHologram(current, line, type)
+                    : JeffLib.getNMSHandler().createHologram(current, line, type);
             entities.add(entity);
-            System.out.println(entity.toString());
             current = current.add(0,lineOffset,0);
         }
-        HologramManager.getHolograms().add(this);
     }
 
+    /**
+     * Creates a hologram from its serialized form. Doesn't look up any players or access the hologram registry, so it
+     * can be called from any thread. The hologram has to be {@link #create() created} on the main thread afterwards.
+     */
     public static Hologram deserialize(@NotNull final Map<String,Object> map) {
         final Type type = Enums.getIfPresent(Type.class,(String) map.getOrDefault(Keys.TYPE,"ARMORSTAND")).or(Type.ARMORSTAND);
         final Hologram hologram = new Hologram(type);
@@ -147,31 +302,33 @@ public class Hologram implements ConfigurationSerializable {
         //noinspection unchecked
         hologram.getLines().addAll((List<String>) map.getOrDefault(Keys.LINES, new ArrayList<String>()));
         hologram.setVisibleForAnyone((boolean) map.getOrDefault(Keys.IS_VISIBlE_FOR_ANYONE, VISIBLE_FOR_ANYONE_DEFAULT));
-        hologram.setVisibilityRadius((double) map.getOrDefault(Keys.VISIBILITY_RADIUS,VISIBILITY_RADIUS_DEFAULT));
-        hologram.setLocation((Location) map.get(Keys.LOCATION));
+        // Not using the setters, as they would update the hologram registry
+        hologram.visibilityRadius = (double) map.getOrDefault(Keys.VISIBILITY_RADIUS,VISIBILITY_RADIUS_DEFAULT);
+        hologram.location = (Location) map.get(Keys.LOCATION);
         //noinspection unchecked
         final List<String> offlinePlayerUUIDs = (List<String>) map.getOrDefault(Keys.PLAYERS,new ArrayList<String>());
         offlinePlayerUUIDs.forEach(entry -> {
             try {
-                final UUID uuid = UUID.fromString(entry);
-                final OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
-                hologram.getPlayers().add(player);
-            } catch (final Throwable ignored) { }
+                hologram.unresolvedPlayers.add(UUID.fromString(entry));
+            } catch (final IllegalArgumentException ignored) { }
         });
         return hologram;
     }
 
     public @NotNull Map<String,Object> serialize() {
         final Map<String,Object> map = new HashMap<>();
+        map.put(Keys.TYPE,type.name());
         map.put(Keys.LINE_OFFSET,lineOffset);
-        map.put(Keys.LINES,lines);
+        map.put(Keys.LINES,new ArrayList<>(lines));
         map.put(Keys.IS_VISIBlE_FOR_ANYONE,isVisibleForAnyone);
         map.put(Keys.VISIBILITY_RADIUS,visibilityRadius);
-        map.put(Keys.PLAYERS,new ArrayList<>(players
+        final List<String> playerUUIDs = players
                 .stream()
                 .map(player -> player.getUniqueId().toString())
-                .collect(Collectors.toList())));
-        map.put(Keys.LOCATION, location);
+                .collect(Collectors.toCollection(ArrayList::new));
+        unresolvedPlayers.forEach(uuid -> playerUUIDs.add(uuid.toString()));
+        map.put(Keys.PLAYERS,playerUUIDs);
+        map.put(Keys.LOCATION, location.clone());
         return map;
     }
 
@@ -0,0 +1,226 @@
+package de.jeff_media.jefflib.data;
+
+import de.jeff_media.jefflib.ItemSerializer;
+import lombok.SneakyThrows;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns ItemStacks that are built or loaded over and over, like GUI icons or loot. Every distinct item is serialized
+ * and deserialized only once: the cache keeps its compact serialized form and a prototype that new ItemStacks are cloned
+ * from. Items are looked up by their content hash, either from an ItemStack or from its serialized bytes. The least
+ * recently used templates are evicted once the cache is full.
+ * <p>
+ * All methods are thread-safe.
+ */
+public final class ItemTemplateCache {
+
+    private final int maxSize;
+    private final LinkedHashMap<ItemStack, Template> byItem;
+    private final Map<BytesKey, Template> byBytes = new HashMap<>();
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Creates a new cache
+     *
+     * @param maxSize Maximum amount of templates kept in the cache
+     */
+    public ItemTemplateCache(final int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Size must be positive");
+        this.maxSize = maxSize;
+        this.byItem = new LinkedHashMap<>(Math.min(maxSize, 64), 0.75f, true);
+    }
+
+    /**
+     * Gets the template for an ItemStack. The ItemStack itself is not stored, so it can be changed afterwards.
+     *
+     * @param item ItemStack
+     * @return Template with the same content
+     */
+    @NotNull
+    public synchronized Template intern(@NotNull final ItemStack item) {
+        final Template cached = byItem.get(item);
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        final ItemStack prototype = item.clone();
+        return add(new Template(prototype, toBytes(prototype)));
+    }
+
+    /**
+     * Gets the template for an ItemStack serialized by {@link ItemSerializer#toCompactBytes(ItemStack)}. The bytes are
+     * only deserialized if no template with the same content exists yet.
+     *
+     * @param bytes Compact serialized ItemStack
+     * @return Template with the same content
+     */
+    @NotNull
+    public synchronized Template intern(@NotNull final byte[] bytes) {
+        final Template cached = byBytes.get(new BytesKey(bytes));
+        if (cached != null) {
+            hits++;
+            // Marks the template as recently used
+            byItem.get(cached.prototype);
+            return cached;
+        }
+        misses++;
+        final byte[] copy = bytes.clone();
+        final ItemStack prototype = fromBytes(copy);
+        final Template existing = byItem.get(prototype);
+        // Different bytes with the same content, e.g. written by another server version
+        if (existing != null) {
+            final BytesKey key = new BytesKey(copy);
+            existing.keys.add(key);
+            byBytes.put(key, existing);
+            return existing;
+        }
+        return add(new Template(prototype, copy));
+    }
+
+    private Template add(final Template template) {
+        byItem.put(template.prototype, template);
+        final BytesKey key = new BytesKey(template.bytes);
+        template.keys.add(key);
+        byBytes.put(key, template);
+        final Iterator<Template> iterator = byItem.values().iterator();
+        while (byItem.size() > maxSize) {
+            final Template eldest = iterator.next();
+            iterator.remove();
+            for (final BytesKey eldestKey : eldest.keys) {
+                byBytes.remove(eldestKey);
+            }
+            evictions++;
+        }
+        return template;
+    }
+
+    /**
+     * Gets the amount of lookups that found an existing template
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the amount of lookups that had to create a new template
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the amount of templates that have been removed because the cache was full
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the share of lookups that found an existing template
+     *
+     * @return Hit rate between 0 and 1, or 0 if nothing has been looked up yet
+     */
+    public synchronized double getHitRate() {
+        final long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public synchronized int size() {
+        return byItem.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Removes all templates and resets the statistics
+     */
+    public synchronized void clear() {
+        byItem.clear();
+        byBytes.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @SneakyThrows
+    private static byte[] toBytes(final ItemStack item) {
+        return ItemSerializer.toCompactBytes(item);
+    }
+
+    @SneakyThrows
+    private static ItemStack fromBytes(final byte[] bytes) {
+        return ItemSerializer.fromCompactBytes(bytes);
+    }
+
+    /**
+     * Serialized form and prototype of an interned ItemStack
+     */
+    public static final class Template {
+        private final ItemStack prototype;
+        private final byte[] bytes;
+        /**
+         * All serialized forms this template is known by
+         */
+        private final List<BytesKey> keys = new ArrayList<>(1);
+
+        private Template(final ItemStack prototype, final byte[] bytes) {
+            this.prototype = prototype;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Creates a new ItemStack with the template's content
+         *
+         * @return New ItemStack that can be changed freely
+         */
+        @NotNull
+        public ItemStack createItemStack() {
+            return prototype.clone();
+        }
+
+        /**
+         * Gets the shared compact serialized form, as created by {@link ItemSerializer#toCompactBytes(ItemStack)}.
+         * The returned array is shared between all users and must not be modified.
+         *
+         * @return Compact serialized ItemStack
+         */
+        @NotNull
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    private static final class BytesKey {
+        private final byte[] bytes;
+        private final int hash;
+
+        private BytesKey(final byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof BytesKey && hash == ((BytesKey) o).hash && Arrays.equals(bytes, ((BytesKey) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
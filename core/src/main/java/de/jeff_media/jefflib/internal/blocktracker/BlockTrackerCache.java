@@ -0,0 +1,206 @@
+package de.jeff_media.jefflib.internal.blocktracker;
+
+import de.jeff_media.jefflib.BlockTracker;
+import de.jeff_media.jefflib.JeffLib;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.experimental.UtilityClass;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the decoded {@link TrackedChunk}s of all loaded chunks in memory.
+ * <p>
+ * Chunks are decoded once when they are loaded. Changes are only written back to the chunk's PersistentDataContainer
+ * when the chunk unloads, when the world is saved, or when the optional flush interval has passed.
+ * As long as the cache is not enabled, all changes are written through directly.
+ */
+@InternalOnly
+@UtilityClass
+public final class BlockTrackerCache {
+
+    private static final Map<UUID, LongHashMap<TrackedChunk>> WORLDS = new HashMap<>();
+    private static boolean enabled = false;
+    private static long flushInterval = 0;
+    @Nullable private static BukkitTask flushTask = null;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables the cache and decodes all chunks that are already loaded
+     */
+    public static void enable() {
+        if (enabled) return;
+        enabled = true;
+        for (final World world : Bukkit.getWorlds()) {
+            for (final Chunk chunk : world.getLoadedChunks()) {
+                load(chunk);
+            }
+        }
+    }
+
+    public static long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Sets how often all dirty chunks are written back. 0 disables the periodic flush.
+     */
+    public static void setFlushInterval(final long ticks) {
+        flushInterval = Math.max(0, ticks);
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (flushInterval > 0) {
+            flushTask = Bukkit.getScheduler().runTaskTimer(JeffLib.getPlugin(), BlockTrackerCache::flushAll, flushInterval, flushInterval);
+        }
+    }
+
+    /**
+     * Gets the tracking data of a chunk, loading the chunk if needed
+     */
+    @NotNull
+    public static TrackedChunk get(@NotNull final World world, final int chunkX, final int chunkZ) {
+        if (enabled) {
+            final LongHashMap<TrackedChunk> chunks = WORLDS.get(world.getUID());
+            if (chunks != null) {
+                final TrackedChunk chunk = chunks.get(TrackedChunk.getKey(chunkX, chunkZ));
+                if (chunk != null) return chunk;
+            }
+        }
+        return load(world.getChunkAt(chunkX, chunkZ));
+    }
+
+    /**
+     * Gets the tracking data of a chunk
+     */
+    @NotNull
+    public static TrackedChunk get(@NotNull final Chunk chunk) {
+        return get(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Gets the cached tracking data of a chunk without loading anything
+     */
+    @Nullable
+    public static TrackedChunk getIfCached(@NotNull final World world, final int chunkX, final int chunkZ) {
+        final LongHashMap<TrackedChunk> chunks = WORLDS.get(world.getUID());
+        return chunks == null ? null : chunks.get(TrackedChunk.getKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Gets all cached chunks of a world
+     */
+    @NotNull
+    public static List<TrackedChunk> getCached(@NotNull final World world) {
+        final LongHashMap<TrackedChunk> chunks = WORLDS.get(world.getUID());
+        return chunks == null ? Collections.emptyList() : chunks.values();
+    }
+
+    /**
+     * Decodes a chunk, replays its pending journal changes and stores it in the cache. Returns the existing data if the chunk is already cached.
+     */
+    @NotNull
+    public static TrackedChunk load(@NotNull final Chunk chunk) {
+        final LongHashMap<TrackedChunk> chunks = enabled ? WORLDS.computeIfAbsent(chunk.getWorld().getUID(), uuid -> new LongHashMap<>()) : null;
+        final long key = TrackedChunk.getKey(chunk.getX(), chunk.getZ());
+        if (chunks != null) {
+            final TrackedChunk existing = chunks.get(key);
+            if (existing != null) return existing;
+        }
+        final TrackedChunk trackedChunk = BlockTrackerStorage.load(chunk.getPersistentDataContainer(), chunk.getX(), chunk.getZ(), BlockTracker.getStorageMode());
+        final BlockTrackerJournal journal = BlockTrackerJournal.getIfPending(chunk.getWorld());
+        if (journal != null) {
+            journal.replay(trackedChunk);
+        }
+        if (trackedChunk.isDirty() && !enabled) {
+            save(chunk, trackedChunk);
+        }
+        if (chunks != null) {
+            chunks.put(key, trackedChunk);
+        }
+        return trackedChunk;
+    }
+
+    /**
+     * Writes the chunk back if needed and removes it from the cache
+     */
+    public static void unload(@NotNull final Chunk chunk) {
+        final LongHashMap<TrackedChunk> chunks = WORLDS.get(chunk.getWorld().getUID());
+        if (chunks == null) return;
+        final TrackedChunk trackedChunk = chunks.remove(TrackedChunk.getKey(chunk.getX(), chunk.getZ()));
+        if (trackedChunk != null && trackedChunk.isDirty()) {
+            save(chunk, trackedChunk);
+        }
+    }
+
+    /**
+     * Called after a chunk's data has been changed. Writes the changed section directly when the cache is disabled,
+     * or the whole chunk if it also has placers or placement times.
+     */
+    public static void update(@NotNull final World world, @NotNull final TrackedChunk trackedChunk, final int sectionY) {
+        if (enabled || !trackedChunk.isDirty()) return;
+        final Chunk chunk = world.getChunkAt(trackedChunk.getX(), trackedChunk.getZ());
+        if (BlockTracker.getStorageMode() == BlockTracker.StorageMode.PACKED && !trackedChunk.hasPlacers() && !trackedChunk.hasTimes()) {
+            BlockTrackerStorage.writeSection(chunk.getPersistentDataContainer(), sectionY, trackedChunk.getSection(sectionY));
+            trackedChunk.setDirty(false);
+        } else {
+            save(chunk, trackedChunk);
+        }
+    }
+
+    /**
+     * Called after many sections of a chunk have been changed at once. Writes the whole chunk directly when the cache is disabled.
+     */
+    public static void update(@NotNull final World world, @NotNull final TrackedChunk trackedChunk) {
+        if (enabled || !trackedChunk.isDirty()) return;
+        save(world.getChunkAt(trackedChunk.getX(), trackedChunk.getZ()), trackedChunk);
+    }
+
+    /**
+     * Writes back all dirty chunks of a world
+     */
+    public static void flush(@NotNull final World world) {
+        final LongHashMap<TrackedChunk> chunks = WORLDS.get(world.getUID());
+        if (chunks == null) return;
+        for (final TrackedChunk trackedChunk : chunks.values()) {
+            if (!trackedChunk.isDirty()) continue;
+            save(world.getChunkAt(trackedChunk.getX(), trackedChunk.getZ()), trackedChunk);
+        }
+    }
+
+    private static void save(@NotNull final Chunk chunk, @NotNull final TrackedChunk trackedChunk) {
+        BlockTrackerStorage.save(chunk.getPersistentDataContainer(), trackedChunk, BlockTracker.getStorageMode());
+        BlockTrackerJournal.markSaved(chunk.getWorld(), trackedChunk);
+    }
+
+    /**
+     * Writes back all dirty chunks of all worlds
+     */
+    public static void flushAll() {
+        for (final World world : Bukkit.getWorlds()) {
+            flush(world);
+        }
+    }
+
+    /**
+     * Writes back all dirty chunks of a world and removes the world from the cache
+     */
+    public static void unloadWorld(@NotNull final World world) {
+        flush(world);
+        WORLDS.remove(world.getUID());
+    }
+
+}
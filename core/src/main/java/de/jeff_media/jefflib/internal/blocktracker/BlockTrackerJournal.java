@@ -0,0 +1,361 @@
+package de.jeff_media.jefflib.internal.blocktracker;
+
+import de.jeff_media.jefflib.BlockUtils;
+import de.jeff_media.jefflib.JeffLib;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Append-only log of tracking changes for chunks that are not loaded. Changes are replayed into the chunk's
+ * {@link TrackedChunk} the next time it loads, so recording them never has to load a chunk.
+ * <p>
+ * Each world has its own file inside its "data" folder. The file starts with a 4 byte magic number, followed by
+ * records of 9 bytes each: the packed block position (see {@link BlockUtils#getPackedPosition(int, int, int)}) and
+ * the new value. Pending changes are also indexed in memory, grouped by chunk.
+ * <p>
+ * Replayed changes stay in the file until the chunk they were saved to has been written to disk. Records of changes
+ * that have been saved to a chunk are only discarded during the world save after the next one, because
+ * {@link org.bukkit.event.world.WorldSaveEvent} is called before the server writes the chunks.
+ */
+@InternalOnly
+public final class BlockTrackerJournal {
+
+    private static final Map<UUID, BlockTrackerJournal> JOURNALS = new HashMap<>();
+    private static final int MAGIC = 0x4A4C4254;
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_SIZE = 9;
+    private static final int BUFFER_RECORDS = 4096;
+
+    private final File file;
+    private final LongHashMap<ChunkChanges> pending = new LongHashMap<>();
+    /**
+     * Changes that have been replayed, but not saved to their chunk yet
+     */
+    private final LongHashMap<ChunkChanges> replayed = new LongHashMap<>();
+    /**
+     * Changes that have been saved to their chunk since the last world save
+     */
+    private final LongHashMap<ChunkChanges> saved = new LongHashMap<>();
+    /**
+     * Changes that had been saved to their chunk before the last world save. They are on disk once the next world save starts.
+     */
+    private final LongHashMap<ChunkChanges> syncing = new LongHashMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * BUFFER_RECORDS);
+    @Nullable private FileChannel channel = null;
+    private long records = 0;
+
+    private BlockTrackerJournal(@NotNull final File file) {
+        this.file = file;
+        read();
+    }
+
+    /**
+     * Gets the journal of a world. The journal file is read the first time this is called for a world.
+     */
+    @NotNull
+    public static BlockTrackerJournal get(@NotNull final World world) {
+        return JOURNALS.computeIfAbsent(world.getUID(), uuid -> new BlockTrackerJournal(getFile(world)));
+    }
+
+    /**
+     * Gets the journal of a world, but only if it has pending changes
+     */
+    @Nullable
+    public static BlockTrackerJournal getIfPending(@NotNull final World world) {
+        final BlockTrackerJournal journal = get(world);
+        return journal.pending.isEmpty() ? null : journal;
+    }
+
+    private static File getFile(@NotNull final World world) {
+        final String name = JeffLib.getPlugin().getName().toLowerCase(Locale.ROOT) + "_blocktracker.journal";
+        return new File(new File(world.getWorldFolder(), "data"), name);
+    }
+
+    /**
+     * Writes all buffered records and compacts every journal. Journals without any changes are deleted.
+     */
+    public static void saveAll() {
+        for (final BlockTrackerJournal journal : JOURNALS.values()) {
+            journal.compact(false);
+        }
+    }
+
+    /**
+     * Called when a world is saved, after the tracking data of its loaded chunks has been written to the chunks.
+     * Discards the changes that have been on disk since the previous world save and compacts the journal.
+     */
+    public static void save(@NotNull final World world) {
+        final BlockTrackerJournal journal = JOURNALS.get(world.getUID());
+        if (journal == null) return;
+        final boolean discarded = !journal.syncing.isEmpty();
+        journal.syncing.clear();
+        for (final ChunkChanges changes : journal.saved.values()) {
+            merge(journal.syncing, changes);
+        }
+        journal.saved.clear();
+        journal.compact(discarded);
+    }
+
+    /**
+     * Compacts and closes the journal of a world
+     */
+    public static void unload(@NotNull final World world) {
+        final BlockTrackerJournal journal = JOURNALS.remove(world.getUID());
+        if (journal != null) {
+            journal.compact(false);
+            journal.close();
+        }
+    }
+
+    /**
+     * Called after a chunk's tracking data has been saved to the chunk. Its replayed changes are discarded once the
+     * chunk has been written to disk, see {@link #save(World)}.
+     */
+    public static void markSaved(@NotNull final World world, @NotNull final TrackedChunk trackedChunk) {
+        final BlockTrackerJournal journal = JOURNALS.get(world.getUID());
+        if (journal == null) return;
+        final ChunkChanges changes = journal.replayed.remove(trackedChunk.getKey());
+        if (changes != null) {
+            merge(journal.saved, changes);
+        }
+    }
+
+    private static void merge(@NotNull final LongHashMap<ChunkChanges> map, @NotNull final ChunkChanges changes) {
+        final long key = TrackedChunk.getKey(changes.getX(), changes.getZ());
+        final ChunkChanges existing = map.get(key);
+        if (existing == null) {
+            map.put(key, changes);
+            return;
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            existing.add(changes.getBlockX(i), changes.getBlockY(i), changes.getBlockZ(i), changes.getValue(i));
+        }
+    }
+
+    /**
+     * Records a change for a block in an unloaded chunk. The change is only buffered, call {@link #flush()} afterwards.
+     */
+    public void record(final int x, final int y, final int z, final boolean value) {
+        final long key = TrackedChunk.getKey(x >> 4, z >> 4);
+        ChunkChanges changes = pending.get(key);
+        if (changes == null) {
+            changes = new ChunkChanges(x >> 4, z >> 4);
+            pending.put(key, changes);
+        }
+        changes.add(x, y, z, value);
+
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.putLong(BlockUtils.getPackedPosition(x, y, z));
+        buffer.put((byte) (value ? 1 : 0));
+    }
+
+    /**
+     * Gets the latest pending change for a block
+     *
+     * @return the new value, or null if there is no pending change for this block
+     */
+    @Nullable
+    public Boolean get(final int x, final int y, final int z) {
+        final ChunkChanges changes = pending.get(TrackedChunk.getKey(x >> 4, z >> 4));
+        return changes == null ? null : changes.get(x, y, z);
+    }
+
+    /**
+     * Applies and removes all pending changes of a chunk
+     *
+     * @return true when the tracked chunk has been changed
+     */
+    public boolean replay(@NotNull final TrackedChunk trackedChunk) {
+        final ChunkChanges changes = pending.remove(trackedChunk.getKey());
+        if (changes == null) return false;
+        final boolean changed = changes.applyTo(trackedChunk);
+        // Unchanged data doesn't have to be saved again, so the stored chunk already contains these changes
+        merge(changed ? replayed : saved, changes);
+        return changed;
+    }
+
+    /**
+     * Writes all buffered records to the file
+     */
+    public void flush() {
+        if (buffer.position() == 0) return;
+        try {
+            final FileChannel out = getChannel();
+            buffer.flip();
+            records += buffer.remaining() / RECORD_SIZE;
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException("Unable to write block tracker journal " + file.getPath(), e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Rewrites the file so that it only contains changes that are still needed. Deletes it when there are none.
+     *
+     * @param force whether to rewrite the file even if it doesn't contain many outdated records
+     */
+    private void compact(final boolean force) {
+        flush();
+        if (pending.isEmpty() && replayed.isEmpty() && saved.isEmpty() && syncing.isEmpty()) {
+            close();
+            records = 0;
+            if (file.exists() && !file.delete()) {
+                JeffLib.getPlugin().getLogger().warning("Could not delete block tracker journal " + file.getPath());
+            }
+            return;
+        }
+        final long liveChanges = count(syncing) + count(saved) + count(replayed) + count(pending);
+        if (!force && records <= liveChanges * 2) return;
+
+        close();
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (final FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC);
+            header.flip();
+            out.write(header);
+            // Oldest first, so that newer changes of the same block win when the file is read
+            write(out, syncing);
+            write(out, saved);
+            write(out, replayed);
+            write(out, pending);
+            buffer.flip();
+            while (buffer.hasRemaining()) out.write(buffer);
+            buffer.clear();
+        } catch (final IOException e) {
+            buffer.clear();
+            JeffLib.getPlugin().getLogger().log(Level.SEVERE, "Unable to compact block tracker journal " + file.getPath(), e);
+            return;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            records = liveChanges;
+        } catch (final IOException e) {
+            JeffLib.getPlugin().getLogger().log(Level.SEVERE, "Unable to replace block tracker journal " + file.getPath(), e);
+        }
+    }
+
+    private static long count(@NotNull final LongHashMap<ChunkChanges> map) {
+        long count = 0;
+        for (final ChunkChanges changes : map.values()) {
+            count += changes.size();
+        }
+        return count;
+    }
+
+    private void write(@NotNull final FileChannel out, @NotNull final LongHashMap<ChunkChanges> map) throws IOException {
+        for (final ChunkChanges changes : map.values()) {
+            for (int i = 0; i < changes.size(); i++) {
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) out.write(buffer);
+                    buffer.clear();
+                }
+                buffer.putLong(BlockUtils.getPackedPosition(changes.getBlockX(i), changes.getBlockY(i), changes.getBlockZ(i)));
+                buffer.put((byte) (changes.getValue(i) ? 1 : 0));
+            }
+        }
+    }
+
+    private void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (final IOException ignored) {
+        }
+        channel = null;
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            final File folder = file.getParentFile();
+            if (!folder.isDirectory() && !folder.mkdirs()) {
+                throw new IOException("Could not create folder " + folder.getPath());
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (channel.size() == 0) {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC);
+                header.flip();
+                channel.write(header);
+            }
+        }
+        return channel;
+    }
+
+    private void read() {
+        if (!file.isFile()) return;
+        boolean invalid = false;
+        try (final FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer input = ByteBuffer.allocate(RECORD_SIZE * BUFFER_RECORDS);
+            while (input.position() < HEADER_SIZE && in.read(input) >= 0) {
+                // Read until the header is complete
+            }
+            input.flip();
+            if (input.remaining() < HEADER_SIZE || input.getInt() != MAGIC) {
+                invalid = true;
+            }
+            while (!invalid) {
+                while (input.remaining() >= RECORD_SIZE) {
+                    final long packed = input.getLong();
+                    final boolean value = input.get() == 1;
+                    final int x = BlockUtils.getPackedX(packed);
+                    final int z = BlockUtils.getPackedZ(packed);
+                    final long key = TrackedChunk.getKey(x >> 4, z >> 4);
+                    records++;
+                    ChunkChanges changes = pending.get(key);
+                    if (changes == null) {
+                        changes = new ChunkChanges(x >> 4, z >> 4);
+                        pending.put(key, changes);
+                    }
+                    changes.add(x, BlockUtils.getPackedY(packed), z, value);
+                }
+                input.compact();
+                if (in.read(input) < 0) break;
+                input.flip();
+            }
+        } catch (final IOException e) {
+            JeffLib.getPlugin().getLogger().log(Level.SEVERE, "Unable to read block tracker journal " + file.getPath(), e);
+            return;
+        }
+
+        if (invalid) {
+            final File moved = new File(file.getParentFile(), file.getName() + ".invalid");
+            JeffLib.getPlugin().getLogger().warning("Ignoring invalid block tracker journal " + file.getPath() + ", moving it to " + moved.getName());
+            if (!file.renameTo(moved)) {
+                JeffLib.getPlugin().getLogger().warning("Could not move invalid block tracker journal " + file.getPath());
+            }
+            return;
+        }
+
+        // Cut off an incomplete record left by a crash, so that new records stay aligned
+        final long validSize = HEADER_SIZE + records * RECORD_SIZE;
+        if (file.length() > validSize) {
+            try (final FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                out.truncate(validSize);
+            } catch (final IOException e) {
+                JeffLib.getPlugin().getLogger().log(Level.SEVERE, "Unable to repair block tracker journal " + file.getPath(), e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package de.jeff_media.jefflib.internal.blocktracker;
+
+import de.jeff_media.jefflib.BlockTracker;
+import de.jeff_media.jefflib.data.BlockTrackerStats;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.experimental.UtilityClass;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects latency histograms for {@link BlockTracker} queries and updates and creates {@link BlockTrackerStats} snapshots.
+ * Latencies are only measured while metrics are enabled, so that disabled metrics don't cost anything but a field read.
+ */
+@InternalOnly
+@UtilityClass
+public final class BlockTrackerMetrics {
+
+    public static final Recorder QUERIES = new Recorder();
+    public static final Recorder UPDATES = new Recorder();
+    private static volatile boolean enabled = false;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(final boolean enabled) {
+        BlockTrackerMetrics.enabled = enabled;
+    }
+
+    /**
+     * Gets the start time of a measurement
+     *
+     * @return current nano time, or 0 when metrics are disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void reset() {
+        QUERIES.reset();
+        UPDATES.reset();
+    }
+
+    /**
+     * Creates a snapshot of a world's statistics
+     *
+     * @param heaviestChunks How many of the heaviest chunks should be included
+     */
+    @NotNull
+    public static BlockTrackerStats getStats(@NotNull final World world, final int heaviestChunks) {
+        final List<TrackedChunk> chunks = BlockTrackerCache.getCached(world);
+        final PriorityQueue<BlockTrackerStats.ChunkStats> heaviest = new PriorityQueue<>(Math.max(1, heaviestChunks),
+                Comparator.comparingInt(BlockTrackerStats.ChunkStats::getStoredBytes));
+        long trackedBlocks = 0;
+        long storedBytes = 0;
+        for (final TrackedChunk trackedChunk : chunks) {
+            final int count = trackedChunk.count();
+            final int size = BlockTrackerStorage.getStoredSize(trackedChunk, BlockTracker.getStorageMode());
+            trackedBlocks += count;
+            storedBytes += size;
+            if (heaviestChunks <= 0 || size == 0) continue;
+            if (heaviest.size() < heaviestChunks) {
+                heaviest.add(new BlockTrackerStats.ChunkStats(trackedChunk.getX(), trackedChunk.getZ(), count, size));
+            } else if (heaviest.peek().getStoredBytes() < size) {
+                heaviest.poll();
+                heaviest.add(new BlockTrackerStats.ChunkStats(trackedChunk.getX(), trackedChunk.getZ(), count, size));
+            }
+        }
+        final List<BlockTrackerStats.ChunkStats> sorted = new ArrayList<>(heaviest);
+        sorted.sort(Comparator.comparingInt(BlockTrackerStats.ChunkStats::getStoredBytes).reversed());
+        return new BlockTrackerStats(world.getName(), chunks.size(), trackedBlocks, storedBytes, sorted, QUERIES.snapshot(), UPDATES.snapshot());
+    }
+
+    /**
+     * Thread-safe latency histogram with power-of-two buckets
+     */
+    public static final class Recorder {
+
+        private static final int BUCKETS = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        /**
+         * Records the time that has passed since {@link #start()}. Does nothing if start is 0.
+         */
+        public void record(final long start) {
+            if (start == 0) return;
+            final long nanos = Math.max(1, System.nanoTime() - start);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos)));
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        public void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        @NotNull
+        public BlockTrackerStats.Histogram snapshot() {
+            final long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = buckets.get(i);
+            }
+            return new BlockTrackerStats.Histogram(copy, count.get(), totalNanos.get(), maxNanos.get());
+        }
+    }
+
+}
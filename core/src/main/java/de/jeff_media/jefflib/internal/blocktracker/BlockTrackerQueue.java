@@ -0,0 +1,78 @@
+package de.jeff_media.jefflib.internal.blocktracker;
+
+import de.jeff_media.jefflib.JeffLib;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.experimental.UtilityClass;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Collects tracking changes that should only be applied at the end of the current tick, so that other
+ * listeners can still query the old state. All pending changes are grouped by chunk and applied in one
+ * batched pass by a single scheduled task.
+ */
+@InternalOnly
+@UtilityClass
+public final class BlockTrackerQueue {
+
+    private static final Map<UUID, LongHashMap<ChunkChanges>> PENDING = new HashMap<>();
+    private static boolean scheduled = false;
+
+    /**
+     * Queues a change that will be applied at the end of the current tick. Later changes for the same block replace earlier ones.
+     */
+    public static void queue(@NotNull final Block block, final boolean playerPlaced) {
+        final int x = block.getX();
+        final int z = block.getZ();
+        final LongHashMap<ChunkChanges> chunks = PENDING.computeIfAbsent(block.getWorld().getUID(), uuid -> new LongHashMap<>());
+        final long key = TrackedChunk.getKey(x >> 4, z >> 4);
+        ChunkChanges changes = chunks.get(key);
+        if (changes == null) {
+            changes = new ChunkChanges(x >> 4, z >> 4);
+            chunks.put(key, changes);
+        }
+        changes.add(x, block.getY(), z, playerPlaced);
+        if (!scheduled) {
+            scheduled = true;
+            Bukkit.getScheduler().runTask(JeffLib.getPlugin(), BlockTrackerQueue::flush);
+        }
+    }
+
+    /**
+     * Applies all pending changes right away
+     */
+    public static void flush() {
+        scheduled = false;
+        if (PENDING.isEmpty()) return;
+        for (final Map.Entry<UUID, LongHashMap<ChunkChanges>> entry : PENDING.entrySet()) {
+            final World world = Bukkit.getWorld(entry.getKey());
+            if (world == null) continue;
+            BlockTrackerJournal journal = null;
+            for (final ChunkChanges changes : entry.getValue().values()) {
+                if (!world.isChunkLoaded(changes.getX(), changes.getZ())) {
+                    // The chunk unloaded in the meantime, so don't load it again just for this
+                    if (journal == null) journal = BlockTrackerJournal.get(world);
+                    for (int i = 0; i < changes.size(); i++) {
+                        journal.record(changes.getBlockX(i), changes.getBlockY(i), changes.getBlockZ(i), changes.getValue(i));
+                    }
+                    continue;
+                }
+                final TrackedChunk trackedChunk = BlockTrackerCache.get(world, changes.getX(), changes.getZ());
+                if (changes.applyTo(trackedChunk)) {
+                    BlockTrackerCache.update(world, trackedChunk);
+                }
+            }
+            if (journal != null) {
+                journal.flush();
+            }
+        }
+        PENDING.clear();
+    }
+
+}
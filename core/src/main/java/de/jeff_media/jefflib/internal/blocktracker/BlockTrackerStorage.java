@@ -0,0 +1,445 @@
+package de.jeff_media.jefflib.internal.blocktracker;
+
+import de.jeff_media.jefflib.BlockTracker;
+import de.jeff_media.jefflib.JeffLib;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.experimental.UtilityClass;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads and writes the {@link BlockTracker} data stored inside a chunk's PersistentDataContainer.
+ * <p>
+ * The packed format stores one LONG_ARRAY per 16x16x16 chunk section, where every bit represents one block.
+ * Trailing empty words are cut off and empty sections are not stored at all.
+ * The legacy format stores one BYTE entry per block inside a nested TAG_CONTAINER.
+ * <p>
+ * Placers are stored independently of the storage mode: one BYTE_ARRAY containing the chunk's palette of UUIDs,
+ * and one sparse INTEGER_ARRAY per section, where every entry contains the block index and its 1-based palette index.
+ * Placement times are stored the same way, as pairs of block index and minute.
+ */
+@InternalOnly
+@UtilityClass
+public final class BlockTrackerStorage {
+
+    public static final int BLOCKS_PER_SECTION = 4096;
+    public static final int WORDS_PER_SECTION = BLOCKS_PER_SECTION / Long.SIZE;
+    private static final int MIN_SECTION = -128;
+    private static final int MAX_SECTION = 127;
+
+    private static final Plugin plugin = JeffLib.getPlugin();
+    private static final NamespacedKey LEGACY_TAG = new NamespacedKey(plugin, "playerplaced");
+    private static final String SECTION_PREFIX = "playerplaced/";
+    private static final NamespacedKey[] SECTION_KEYS = new NamespacedKey[MAX_SECTION - MIN_SECTION + 1];
+    private static final NamespacedKey PALETTE_KEY = new NamespacedKey(plugin, "placers");
+    private static final String PLACER_SECTION_PREFIX = "placers/";
+    private static final NamespacedKey[] PLACER_SECTION_KEYS = new NamespacedKey[MAX_SECTION - MIN_SECTION + 1];
+    private static final String TIME_SECTION_PREFIX = "placed/";
+    private static final NamespacedKey[] TIME_SECTION_KEYS = new NamespacedKey[MAX_SECTION - MIN_SECTION + 1];
+
+    /**
+     * Gets the bit index of a block inside its section
+     */
+    public static int getIndex(final int x, final int y, final int z) {
+        return (y & 0xF) << 8 | (z & 0xF) << 4 | (x & 0xF);
+    }
+
+    /**
+     * Gets the key used to store the given section in the packed format. Keys are created once and reused afterwards.
+     */
+    public static NamespacedKey getSectionKey(final int sectionY) {
+        if (sectionY < MIN_SECTION || sectionY > MAX_SECTION) {
+            throw new IllegalArgumentException("Section " + sectionY + " is outside of the supported world height");
+        }
+        final int index = sectionY - MIN_SECTION;
+        NamespacedKey key = SECTION_KEYS[index];
+        if (key == null) {
+            key = new NamespacedKey(plugin, SECTION_PREFIX + sectionY);
+            SECTION_KEYS[index] = key;
+        }
+        return key;
+    }
+
+    /**
+     * Gets the key used to store the placers of the given section. Keys are created once and reused afterwards.
+     */
+    public static NamespacedKey getPlacerSectionKey(final int sectionY) {
+        if (sectionY < MIN_SECTION || sectionY > MAX_SECTION) {
+            throw new IllegalArgumentException("Section " + sectionY + " is outside of the supported world height");
+        }
+        final int index = sectionY - MIN_SECTION;
+        NamespacedKey key = PLACER_SECTION_KEYS[index];
+        if (key == null) {
+            key = new NamespacedKey(plugin, PLACER_SECTION_PREFIX + sectionY);
+            PLACER_SECTION_KEYS[index] = key;
+        }
+        return key;
+    }
+
+    /**
+     * Gets the key used to store the placement times of the given section. Keys are created once and reused afterwards.
+     */
+    public static NamespacedKey getTimeSectionKey(final int sectionY) {
+        if (sectionY < MIN_SECTION || sectionY > MAX_SECTION) {
+            throw new IllegalArgumentException("Section " + sectionY + " is outside of the supported world height");
+        }
+        final int index = sectionY - MIN_SECTION;
+        NamespacedKey key = TIME_SECTION_KEYS[index];
+        if (key == null) {
+            key = new NamespacedKey(plugin, TIME_SECTION_PREFIX + sectionY);
+            TIME_SECTION_KEYS[index] = key;
+        }
+        return key;
+    }
+
+    /**
+     * Checks whether the given bit is set. A null or shortened array counts as all zeros.
+     */
+    public static boolean isSet(@Nullable final long[] words, final int index) {
+        final int word = index >>> 6;
+        return words != null && word < words.length && (words[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * Cuts off trailing empty words
+     *
+     * @return the trimmed array, or null when all words are empty
+     */
+    @Nullable
+    public static long[] trim(@NotNull final long[] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+        if (length == 0) return null;
+        if (length == words.length) return words;
+        final long[] trimmed = new long[length];
+        System.arraycopy(words, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    /**
+     * Checks whether the PDC still contains data in the format that is not used by the given storage mode
+     */
+    public static boolean needsMigration(@NotNull final PersistentDataContainer pdc, @NotNull final BlockTracker.StorageMode mode) {
+        if (mode == BlockTracker.StorageMode.PACKED) {
+            return pdc.has(LEGACY_TAG, PersistentDataType.TAG_CONTAINER);
+        }
+        for (final NamespacedKey key : pdc.getKeys()) {
+            if (isSectionKey(key)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Converts all existing data in the PDC to the given storage mode
+     */
+    public static void migrate(@NotNull final PersistentDataContainer pdc, @NotNull final BlockTracker.StorageMode mode) {
+        if (!needsMigration(pdc, mode)) return;
+        write(pdc, read(pdc), mode);
+    }
+
+    /**
+     * Reads all tracked blocks from the PDC, regardless of the format they have been saved in
+     *
+     * @return Map of section Y coordinates to their packed bits
+     */
+    @NotNull
+    public static Map<Integer, long[]> read(@NotNull final PersistentDataContainer pdc) {
+        final Map<Integer, long[]> sections = new HashMap<>();
+        for (final NamespacedKey key : pdc.getKeys()) {
+            if (!isSectionKey(key)) continue;
+            final long[] words = pdc.get(key, PersistentDataType.LONG_ARRAY);
+            if (words == null) continue;
+            final long[] full = new long[WORDS_PER_SECTION];
+            System.arraycopy(words, 0, full, 0, Math.min(words.length, WORDS_PER_SECTION));
+            sections.put(Integer.parseInt(key.getKey().substring(SECTION_PREFIX.length())), full);
+        }
+        final PersistentDataContainer legacy = pdc.get(LEGACY_TAG, PersistentDataType.TAG_CONTAINER);
+        if (legacy != null) {
+            for (final NamespacedKey key : legacy.getKeys()) {
+                if (!key.getNamespace().equals(LEGACY_TAG.getNamespace())) continue;
+                final String[] parts = key.getKey().split("/");
+                if (parts.length != 3) continue;
+                final int x = Integer.parseInt(parts[0]);
+                final int y = Integer.parseInt(parts[1]);
+                final int z = Integer.parseInt(parts[2]);
+                final long[] words = sections.computeIfAbsent(y >> 4, sectionY -> new long[WORDS_PER_SECTION]);
+                final int index = getIndex(x, y, z);
+                words[index >>> 6] |= 1L << index;
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * Replaces all tracked blocks in the PDC with the given sections, using the given storage mode.
+     * Data stored in the other format is removed.
+     *
+     * @param sections Map of section Y coordinates to their packed bits
+     */
+    public static void write(@NotNull final PersistentDataContainer pdc, @NotNull final Map<Integer, long[]> sections, @NotNull final BlockTracker.StorageMode mode) {
+        for (final NamespacedKey key : pdc.getKeys().toArray(new NamespacedKey[0])) {
+            if (isSectionKey(key)) pdc.remove(key);
+        }
+        pdc.remove(LEGACY_TAG);
+
+        if (mode == BlockTracker.StorageMode.PACKED) {
+            for (final Map.Entry<Integer, long[]> entry : sections.entrySet()) {
+                final long[] words = trim(entry.getValue().clone());
+                if (words != null) {
+                    pdc.set(getSectionKey(entry.getKey()), PersistentDataType.LONG_ARRAY, words);
+                }
+            }
+            return;
+        }
+
+        final PersistentDataContainer legacy = pdc.getAdapterContext().newPersistentDataContainer();
+        for (final Map.Entry<Integer, long[]> entry : sections.entrySet()) {
+            final long[] words = entry.getValue();
+            for (int index = 0; index < BLOCKS_PER_SECTION; index++) {
+                if (!isSet(words, index)) continue;
+                final int x = index & 0xF;
+                final int z = (index >> 4) & 0xF;
+                final int y = (entry.getKey() << 4) | (index >> 8);
+                legacy.set(getLegacyKey(x, y, z), PersistentDataType.BYTE, (byte) 1);
+            }
+        }
+        if (!legacy.getKeys().isEmpty()) {
+            pdc.set(LEGACY_TAG, PersistentDataType.TAG_CONTAINER, legacy);
+        }
+    }
+
+    /**
+     * Decodes the tracked blocks of a chunk. Data that is still stored in the other format is converted right away.
+     * Expired blocks are removed, which marks the chunk as dirty.
+     */
+    @NotNull
+    public static TrackedChunk load(@NotNull final PersistentDataContainer pdc, final int chunkX, final int chunkZ, @NotNull final BlockTracker.StorageMode mode) {
+        final Map<Integer, long[]> sections = read(pdc);
+        if (needsMigration(pdc, mode)) {
+            write(pdc, sections, mode);
+        }
+        final TrackedChunk chunk = new TrackedChunk(chunkX, chunkZ);
+        for (final Map.Entry<Integer, long[]> entry : sections.entrySet()) {
+            chunk.setSection(entry.getKey(), entry.getValue());
+        }
+        readPlacers(pdc, chunk);
+        readTimes(pdc, chunk);
+        chunk.expire();
+        return chunk;
+    }
+
+    /**
+     * Writes all tracked blocks of a chunk and marks it as clean
+     */
+    public static void save(@NotNull final PersistentDataContainer pdc, @NotNull final TrackedChunk chunk, @NotNull final BlockTracker.StorageMode mode) {
+        write(pdc, chunk.getSections(), mode);
+        writePlacers(pdc, chunk);
+        writeTimes(pdc, chunk);
+        chunk.setDirty(false);
+    }
+
+    /**
+     * Reads the placement times of a chunk. Entries that point to untracked blocks are ignored.
+     */
+    public static void readTimes(@NotNull final PersistentDataContainer pdc, @NotNull final TrackedChunk chunk) {
+        for (final NamespacedKey key : pdc.getKeys()) {
+            if (!isTimeSectionKey(key)) continue;
+            final int[] entries = pdc.get(key, PersistentDataType.INTEGER_ARRAY);
+            if (entries == null) continue;
+            final int sectionY = Integer.parseInt(key.getKey().substring(TIME_SECTION_PREFIX.length()));
+            final long[] words = chunk.getSection(sectionY);
+            final int[] times = new int[entries.length & ~1];
+            int size = 0;
+            for (int i = 0; i + 1 < entries.length; i += 2) {
+                final int index = entries[i];
+                if (index < 0 || index >= BLOCKS_PER_SECTION || !isSet(words, index) || entries[i + 1] == 0) continue;
+                times[size++] = index;
+                times[size++] = entries[i + 1];
+            }
+            if (size > 0) {
+                chunk.setTimes(sectionY, Arrays.copyOf(times, size));
+            }
+        }
+    }
+
+    /**
+     * Replaces all placement times in the PDC with the placement times of the given chunk
+     */
+    public static void writeTimes(@NotNull final PersistentDataContainer pdc, @NotNull final TrackedChunk chunk) {
+        for (final NamespacedKey key : pdc.getKeys().toArray(new NamespacedKey[0])) {
+            if (isTimeSectionKey(key)) pdc.remove(key);
+        }
+        if (!chunk.hasTimes()) return;
+
+        for (final int sectionY : chunk.getSections().keySet()) {
+            final int[] times = chunk.getTimes(sectionY);
+            if (times != null) {
+                pdc.set(getTimeSectionKey(sectionY), PersistentDataType.INTEGER_ARRAY, times);
+            }
+        }
+    }
+
+    /**
+     * Reads the placers of a chunk. Entries that point to untracked blocks or to unknown palette indices are ignored.
+     */
+    public static void readPlacers(@NotNull final PersistentDataContainer pdc, @NotNull final TrackedChunk chunk) {
+        final byte[] bytes = pdc.get(PALETTE_KEY, PersistentDataType.BYTE_ARRAY);
+        if (bytes == null) return;
+        final List<UUID> palette = chunk.getPalette();
+        palette.clear();
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.remaining() >= 16) {
+            palette.add(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+        for (final NamespacedKey key : pdc.getKeys()) {
+            if (!isPlacerSectionKey(key)) continue;
+            final int[] entries = pdc.get(key, PersistentDataType.INTEGER_ARRAY);
+            if (entries == null) continue;
+            final int sectionY = Integer.parseInt(key.getKey().substring(PLACER_SECTION_PREFIX.length()));
+            final long[] words = chunk.getSection(sectionY);
+            final char[] placers = new char[BLOCKS_PER_SECTION];
+            boolean any = false;
+            for (final int entry : entries) {
+                final int index = entry >>> 16;
+                final int paletteIndex = entry & 0xFFFF;
+                if (index >= BLOCKS_PER_SECTION || paletteIndex == 0 || paletteIndex > palette.size() || !isSet(words, index)) continue;
+                placers[index] = (char) paletteIndex;
+                any = true;
+            }
+            if (any) {
+                chunk.setPlacers(sectionY, placers);
+            }
+        }
+    }
+
+    /**
+     * Replaces all placers in the PDC with the placers of the given chunk. Unused palette entries are removed first.
+     */
+    public static void writePlacers(@NotNull final PersistentDataContainer pdc, @NotNull final TrackedChunk chunk) {
+        for (final NamespacedKey key : pdc.getKeys().toArray(new NamespacedKey[0])) {
+            if (isPlacerSectionKey(key)) pdc.remove(key);
+        }
+        pdc.remove(PALETTE_KEY);
+        if (!chunk.hasPlacers()) return;
+
+        chunk.compactPalette();
+        final List<UUID> palette = chunk.getPalette();
+        if (palette.isEmpty()) return;
+        final ByteBuffer buffer = ByteBuffer.allocate(palette.size() * 16);
+        for (final UUID uuid : palette) {
+            buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        }
+        pdc.set(PALETTE_KEY, PersistentDataType.BYTE_ARRAY, buffer.array());
+
+        for (final int sectionY : chunk.getSections().keySet()) {
+            final char[] placers = chunk.getPlacers(sectionY);
+            if (placers == null) continue;
+            int size = 0;
+            int[] entries = new int[16];
+            for (int index = 0; index < BLOCKS_PER_SECTION; index++) {
+                if (placers[index] == 0) continue;
+                if (size == entries.length) {
+                    entries = Arrays.copyOf(entries, size << 1);
+                }
+                entries[size++] = index << 16 | placers[index];
+            }
+            if (size > 0) {
+                pdc.set(getPlacerSectionKey(sectionY), PersistentDataType.INTEGER_ARRAY, Arrays.copyOf(entries, size));
+            }
+        }
+    }
+
+    /**
+     * Writes a single section in the packed format
+     */
+    public static void writeSection(@NotNull final PersistentDataContainer pdc, final int sectionY, @Nullable final long[] words) {
+        final NamespacedKey key = getSectionKey(sectionY);
+        final long[] trimmed = words == null ? null : trim(words.clone());
+        if (trimmed == null) {
+            pdc.remove(key);
+        } else {
+            pdc.set(key, PersistentDataType.LONG_ARRAY, trimmed);
+        }
+    }
+
+    /**
+     * Estimates how many bytes the chunk's data takes up inside the PDC when it's saved using the given storage mode.
+     * Only counts keys and values, without the NBT overhead.
+     */
+    public static int getStoredSize(@NotNull final TrackedChunk chunk, @NotNull final BlockTracker.StorageMode mode) {
+        final int sectionKeyLength = plugin.getName().length() + 1 + SECTION_PREFIX.length() + 2;
+        final int placerKeyLength = plugin.getName().length() + 1 + PLACER_SECTION_PREFIX.length() + 2;
+        final int timeKeyLength = plugin.getName().length() + 1 + TIME_SECTION_PREFIX.length() + 2;
+        int size = 0;
+        for (final Map.Entry<Integer, long[]> entry : chunk.getSections().entrySet()) {
+            final long[] words = entry.getValue();
+            if (mode == BlockTracker.StorageMode.PACKED) {
+                int length = words.length;
+                while (length > 0 && words[length - 1] == 0) {
+                    length--;
+                }
+                size += sectionKeyLength + length * Long.BYTES;
+            } else {
+                int count = 0;
+                for (final long word : words) {
+                    count += Long.bitCount(word);
+                }
+                // "x/y/z" key and a single byte value
+                size += count * (plugin.getName().length() + 1 + 8 + 1);
+            }
+            final char[] placers = chunk.getPlacers(entry.getKey());
+            if (placers != null) {
+                int count = 0;
+                for (final char placer : placers) {
+                    if (placer != 0) count++;
+                }
+                if (count > 0) {
+                    size += placerKeyLength + count * Integer.BYTES;
+                }
+            }
+            final int[] times = chunk.getTimes(entry.getKey());
+            if (times != null) {
+                size += timeKeyLength + times.length * Integer.BYTES;
+            }
+        }
+        if (chunk.hasPlacers()) {
+            size += PALETTE_KEY.toString().length() + chunk.getPalette().size() * 16;
+        }
+        return size;
+    }
+
+    /**
+     * Gets the key used by the legacy format for a block
+     */
+    @NotNull
+    private static NamespacedKey getLegacyKey(final int x, final int y, final int z) {
+        //noinspection HardcodedFileSeparator
+        return new NamespacedKey(plugin, (x & 0xF) + "/" + y + "/" + (z & 0xF));
+    }
+
+    private static boolean isSectionKey(@NotNull final NamespacedKey key) {
+        return key.getNamespace().equals(LEGACY_TAG.getNamespace()) && key.getKey().startsWith(SECTION_PREFIX);
+    }
+
+    private static boolean isPlacerSectionKey(@NotNull final NamespacedKey key) {
+        return key.getNamespace().equals(LEGACY_TAG.getNamespace()) && key.getKey().startsWith(PLACER_SECTION_PREFIX);
+    }
+
+    private static boolean isTimeSectionKey(@NotNull final NamespacedKey key) {
+        return key.getNamespace().equals(LEGACY_TAG.getNamespace()) && key.getKey().startsWith(TIME_SECTION_PREFIX);
+    }
+
+}
@@ -0,0 +1,126 @@
+package de.jeff_media.jefflib.internal.blocktracker;
+
+import de.jeff_media.jefflib.internal.InternalOnly;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Ordered list of tracking changes for one chunk that have not been applied to its {@link TrackedChunk} yet.
+ * Every change is packed into a single int: Y in the upper bits, then local Z, local X and the new value.
+ * Every block has at most one change, which is found through a small open addressing index.
+ */
+@InternalOnly
+public final class ChunkChanges {
+
+    private final int x;
+    private final int z;
+    private int[] changes = new int[8];
+    /**
+     * Position of every change, plus 1. 0 marks a free slot.
+     */
+    private int[] index = new int[16];
+    private int size = 0;
+
+    public ChunkChanges(final int x, final int z) {
+        this.x = x;
+        this.z = z;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a change. Later changes for the same block replace earlier ones.
+     */
+    public void add(final int blockX, final int blockY, final int blockZ, final boolean value) {
+        final int position = getPosition(blockX, blockY, blockZ);
+        final int slot = findSlot(position);
+        if (index[slot] != 0) {
+            changes[index[slot] - 1] = position | (value ? 1 : 0);
+            return;
+        }
+        if (size == changes.length) {
+            final int[] grown = new int[size << 1];
+            System.arraycopy(changes, 0, grown, 0, size);
+            changes = grown;
+            rebuildIndex(grown.length << 1);
+            index[findSlot(position)] = size + 1;
+        } else {
+            index[slot] = size + 1;
+        }
+        changes[size++] = position | (value ? 1 : 0);
+    }
+
+    private static int getPosition(final int blockX, final int blockY, final int blockZ) {
+        return blockY << 9 | (blockZ & 0xF) << 5 | (blockX & 0xF) << 1;
+    }
+
+    /**
+     * Finds the index slot of a position, or the free slot where it would be inserted
+     */
+    private int findSlot(final int position) {
+        final int mask = index.length - 1;
+        final int hash = position * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (index[slot] != 0 && (changes[index[slot] - 1] & ~1) != position) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rebuildIndex(final int capacity) {
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            index[findSlot(changes[i] & ~1)] = i + 1;
+        }
+    }
+
+    public int getBlockX(final int index) {
+        return x << 4 | ((changes[index] >> 1) & 0xF);
+    }
+
+    public int getBlockY(final int index) {
+        return changes[index] >> 9;
+    }
+
+    public int getBlockZ(final int index) {
+        return z << 4 | ((changes[index] >> 5) & 0xF);
+    }
+
+    public boolean getValue(final int index) {
+        return (changes[index] & 1) == 1;
+    }
+
+    /**
+     * Gets the change for a block
+     *
+     * @return the new value, or null when there is no change for this block
+     */
+    @Nullable
+    public Boolean get(final int blockX, final int blockY, final int blockZ) {
+        final int slot = index[findSlot(getPosition(blockX, blockY, blockZ))];
+        return slot == 0 ? null : (changes[slot - 1] & 1) == 1;
+    }
+
+    /**
+     * Applies all changes in order
+     *
+     * @return true when the tracked chunk has been changed
+     */
+    public boolean applyTo(final TrackedChunk trackedChunk) {
+        boolean changed = false;
+        for (int i = 0; i < size; i++) {
+            changed |= trackedChunk.set(getBlockX(i), getBlockY(i), getBlockZ(i), getValue(i));
+        }
+        return changed;
+    }
+
+}
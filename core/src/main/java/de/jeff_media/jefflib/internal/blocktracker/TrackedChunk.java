@@ -0,0 +1,558 @@
+package de.jeff_media.jefflib.internal.blocktracker;
+
+import de.jeff_media.jefflib.internal.InternalOnly;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Decoded tracking data of one chunk. Every section is a fixed size bitset of 64 longs.
+ * <p>
+ * Placers are optional: every section can have a char per block that points into a chunk-local palette of UUIDs,
+ * where 0 means that no placer is known.
+ * <p>
+ * When a time to live is set, every section can also have a sparse list of placement times, containing the minute each
+ * block has been placed at. Memory is only used for blocks that actually have a placement time. Blocks older than the time
+ * to live count as not tracked. Blocks without a placement time never expire.
+ */
+@InternalOnly
+public final class TrackedChunk {
+
+    private static final long[][] NO_SECTIONS = new long[0][];
+    private static final char[][] NO_PLACERS = new char[0][];
+    private static final SectionTimes[] NO_TIMES = new SectionTimes[0];
+    private static final int MAX_PALETTE_SIZE = Character.MAX_VALUE;
+    private static volatile int timeToLive = 0;
+
+    private final int x;
+    private final int z;
+    private long[][] sections = NO_SECTIONS;
+    private char[][] placers = NO_PLACERS;
+    private SectionTimes[] times = NO_TIMES;
+    private final List<UUID> palette = new ArrayList<>();
+    private int minSection;
+    private boolean dirty;
+
+    public TrackedChunk(final int x, final int z) {
+        this.x = x;
+        this.z = z;
+    }
+
+    /**
+     * Gets the key used to identify a chunk inside its world
+     */
+    public static long getKey(final int chunkX, final int chunkZ) {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public long getKey() {
+        return getKey(x, z);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void setDirty(final boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    /**
+     * Gets the time to live in minutes. 0 means that blocks never expire.
+     */
+    public static int getTimeToLive() {
+        return timeToLive;
+    }
+
+    public static void setTimeToLive(final int minutes) {
+        timeToLive = Math.max(0, minutes);
+    }
+
+    /**
+     * Gets the current time in minutes since the epoch, as stored in the placement times
+     */
+    public static int getCurrentMinute() {
+        return (int) (System.currentTimeMillis() / 60000L);
+    }
+
+    /**
+     * Checks whether the block at the given world coordinates is tracked and not expired
+     */
+    public boolean isSet(final int blockX, final int blockY, final int blockZ) {
+        final int index = (blockY >> 4) - minSection;
+        if (index < 0 || index >= sections.length) return false;
+        final int blockIndex = BlockTrackerStorage.getIndex(blockX, blockY, blockZ);
+        if (!BlockTrackerStorage.isSet(sections[index], blockIndex)) return false;
+        final int ttl = timeToLive;
+        return ttl == 0 || !isExpired(times[index], blockIndex, getCurrentMinute() - ttl);
+    }
+
+    private static boolean isExpired(@Nullable final SectionTimes sectionTimes, final int blockIndex, final int expiredBefore) {
+        if (sectionTimes == null) return false;
+        final int minute = sectionTimes.get(blockIndex);
+        return minute != 0 && minute <= expiredBefore;
+    }
+
+    /**
+     * Sets whether the block at the given world coordinates is tracked
+     *
+     * @return true when the value has changed
+     */
+    public boolean set(final int blockX, final int blockY, final int blockZ, final boolean value) {
+        final long[] words = value ? getOrCreateSection(blockY >> 4) : getSection(blockY >> 4);
+        if (words == null) return false;
+        final int index = BlockTrackerStorage.getIndex(blockX, blockY, blockZ);
+        final long old = words[index >>> 6];
+        final long updated = value ? old | (1L << index) : old & ~(1L << index);
+        final int sectionIndex = (blockY >> 4) - minSection;
+        if (value && timeToLive > 0) {
+            SectionTimes sectionTimes = times[sectionIndex];
+            if (sectionTimes == null) {
+                sectionTimes = new SectionTimes();
+                times[sectionIndex] = sectionTimes;
+            }
+            // Placing a block again refreshes its placement time, even if it was already tracked
+            if (!sectionTimes.put(index, getCurrentMinute()) && updated == old) return false;
+            words[index >>> 6] = updated;
+            dirty = true;
+            return true;
+        }
+        if (updated == old) return false;
+        words[index >>> 6] = updated;
+        if (!value) {
+            if (placers[sectionIndex] != null) {
+                placers[sectionIndex][index] = 0;
+            }
+            if (times[sectionIndex] != null) {
+                times[sectionIndex].put(index, 0);
+            }
+        }
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Removes all blocks that are older than the time to live
+     *
+     * @return true when any block has been removed
+     */
+    public boolean expire() {
+        final int ttl = timeToLive;
+        if (ttl == 0) return false;
+        final int expiredBefore = getCurrentMinute() - ttl;
+        boolean changed = false;
+        for (int sectionIndex = 0; sectionIndex < times.length; sectionIndex++) {
+            final SectionTimes sectionTimes = times[sectionIndex];
+            final long[] words = sections[sectionIndex];
+            if (sectionTimes == null || words == null) continue;
+            int kept = 0;
+            for (int i = 0; i < sectionTimes.size; i++) {
+                final int index = sectionTimes.indices[i];
+                if (sectionTimes.minutes[i] > expiredBefore) {
+                    sectionTimes.indices[kept] = sectionTimes.indices[i];
+                    sectionTimes.minutes[kept] = sectionTimes.minutes[i];
+                    kept++;
+                    continue;
+                }
+                words[index >>> 6] &= ~(1L << index);
+                if (placers[sectionIndex] != null) {
+                    placers[sectionIndex][index] = 0;
+                }
+                changed = true;
+            }
+            sectionTimes.size = kept;
+        }
+        if (changed) {
+            dirty = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Checks whether any section has placement times
+     */
+    public boolean hasTimes() {
+        for (final SectionTimes sectionTimes : times) {
+            if (sectionTimes != null && sectionTimes.size > 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the placement times of a section as pairs of block index and minute since the epoch, sorted by block index
+     *
+     * @return new array containing the pairs, or null if the section has no placement times
+     */
+    @Nullable
+    public int[] getTimes(final int sectionY) {
+        final int index = sectionY - minSection;
+        if (index < 0 || index >= times.length || times[index] == null || times[index].size == 0) return null;
+        final SectionTimes sectionTimes = times[index];
+        final int[] pairs = new int[sectionTimes.size * 2];
+        for (int i = 0; i < sectionTimes.size; i++) {
+            pairs[i * 2] = sectionTimes.indices[i];
+            pairs[i * 2 + 1] = sectionTimes.minutes[i];
+        }
+        return pairs;
+    }
+
+    /**
+     * Replaces the placement times of a section
+     *
+     * @param pairs Pairs of block index and minute since the epoch
+     */
+    public void setTimes(final int sectionY, @NotNull final int[] pairs) {
+        getOrCreateSection(sectionY);
+        final SectionTimes sectionTimes = new SectionTimes();
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            sectionTimes.put(pairs[i], pairs[i + 1]);
+        }
+        times[sectionY - minSection] = sectionTimes;
+    }
+
+    /**
+     * Gets the placement time of the block at the given world coordinates in minutes since the epoch, or 0 if it is unknown
+     */
+    public int getTime(final int blockX, final int blockY, final int blockZ) {
+        final int index = (blockY >> 4) - minSection;
+        if (index < 0 || index >= times.length || times[index] == null) return 0;
+        return times[index].get(BlockTrackerStorage.getIndex(blockX, blockY, blockZ));
+    }
+
+    /**
+     * Sets the placement time of the block at the given world coordinates. Doesn't change whether the block is tracked.
+     */
+    public void setTime(final int blockX, final int blockY, final int blockZ, final int minute) {
+        final int index = BlockTrackerStorage.getIndex(blockX, blockY, blockZ);
+        if (minute == 0) {
+            final int sectionIndex = (blockY >> 4) - minSection;
+            if (sectionIndex < 0 || sectionIndex >= times.length || times[sectionIndex] == null) return;
+            if (times[sectionIndex].put(index, 0)) {
+                dirty = true;
+            }
+            return;
+        }
+        getOrCreateSection(blockY >> 4);
+        final int sectionIndex = (blockY >> 4) - minSection;
+        SectionTimes sectionTimes = times[sectionIndex];
+        if (sectionTimes == null) {
+            sectionTimes = new SectionTimes();
+            times[sectionIndex] = sectionTimes;
+        }
+        if (sectionTimes.put(index, minute)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Gets who placed the block at the given world coordinates
+     *
+     * @return the placer, or null if no placer is known
+     */
+    @Nullable
+    public UUID getPlacer(final int blockX, final int blockY, final int blockZ) {
+        final int index = (blockY >> 4) - minSection;
+        if (index < 0 || index >= placers.length || placers[index] == null) return null;
+        final char paletteIndex = placers[index][BlockTrackerStorage.getIndex(blockX, blockY, blockZ)];
+        return paletteIndex == 0 ? null : palette.get(paletteIndex - 1);
+    }
+
+    /**
+     * Sets who placed the block at the given world coordinates. Doesn't change whether the block is tracked.
+     */
+    public void setPlacer(final int blockX, final int blockY, final int blockZ, @Nullable final UUID placer) {
+        final int index = BlockTrackerStorage.getIndex(blockX, blockY, blockZ);
+        if (placer == null) {
+            final int sectionIndex = (blockY >> 4) - minSection;
+            if (sectionIndex < 0 || sectionIndex >= placers.length || placers[sectionIndex] == null) return;
+            if (placers[sectionIndex][index] != 0) {
+                placers[sectionIndex][index] = 0;
+                dirty = true;
+            }
+            return;
+        }
+        getOrCreateSection(blockY >> 4);
+        final int sectionIndex = (blockY >> 4) - minSection;
+        char[] sectionPlacers = placers[sectionIndex];
+        if (sectionPlacers == null) {
+            sectionPlacers = new char[BlockTrackerStorage.BLOCKS_PER_SECTION];
+            placers[sectionIndex] = sectionPlacers;
+        }
+        final char paletteIndex = getPaletteIndex(placer);
+        if (sectionPlacers[index] != paletteIndex) {
+            sectionPlacers[index] = paletteIndex;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Checks whether any section has placer information
+     */
+    public boolean hasPlacers() {
+        for (final char[] sectionPlacers : placers) {
+            if (sectionPlacers != null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the placer palette indices of a section, or null if it has no placer information. Index 0 means no placer,
+     * all other indices point to {@link #getPalette()} after subtracting 1.
+     */
+    @Nullable
+    public char[] getPlacers(final int sectionY) {
+        final int index = sectionY - minSection;
+        if (index < 0 || index >= placers.length) return null;
+        return placers[index];
+    }
+
+    /**
+     * Replaces the placer palette indices of a section
+     */
+    public void setPlacers(final int sectionY, @NotNull final char[] sectionPlacers) {
+        getOrCreateSection(sectionY);
+        placers[sectionY - minSection] = sectionPlacers;
+    }
+
+    @NotNull
+    public List<UUID> getPalette() {
+        return palette;
+    }
+
+    /**
+     * Removes all palette entries that are not used by any block anymore
+     */
+    public void compactPalette() {
+        if (palette.isEmpty()) return;
+        final char[] remap = new char[palette.size() + 1];
+        final List<UUID> used = new ArrayList<>();
+        for (final char[] sectionPlacers : placers) {
+            if (sectionPlacers == null) continue;
+            for (int i = 0; i < sectionPlacers.length; i++) {
+                final char paletteIndex = sectionPlacers[i];
+                if (paletteIndex == 0) continue;
+                if (remap[paletteIndex] == 0) {
+                    used.add(palette.get(paletteIndex - 1));
+                    remap[paletteIndex] = (char) used.size();
+                }
+                sectionPlacers[i] = remap[paletteIndex];
+            }
+        }
+        palette.clear();
+        palette.addAll(used);
+    }
+
+    private char getPaletteIndex(@NotNull final UUID placer) {
+        int index = palette.indexOf(placer);
+        if (index == -1) {
+            if (palette.size() >= MAX_PALETTE_SIZE) {
+                compactPalette();
+            }
+            if (palette.size() >= MAX_PALETTE_SIZE) {
+                throw new IllegalStateException("Chunk " + x + ", " + z + " has too many different placers");
+            }
+            palette.add(placer);
+            index = palette.size() - 1;
+        }
+        return (char) (index + 1);
+    }
+
+    /**
+     * Gets the bits of a section, or null if nothing has ever been tracked in it
+     */
+    @Nullable
+    public long[] getSection(final int sectionY) {
+        final int index = sectionY - minSection;
+        if (index < 0 || index >= sections.length) return null;
+        return sections[index];
+    }
+
+    /**
+     * Replaces the bits of a section
+     */
+    public void setSection(final int sectionY, @NotNull final long[] words) {
+        final long[] full = getOrCreateSection(sectionY);
+        System.arraycopy(words, 0, full, 0, Math.min(words.length, BlockTrackerStorage.WORDS_PER_SECTION));
+    }
+
+    /**
+     * Gets all non-empty sections
+     *
+     * @return Map of section Y coordinates to their bits
+     */
+    @NotNull
+    public Map<Integer, long[]> getSections() {
+        final Map<Integer, long[]> map = new HashMap<>();
+        for (int i = 0; i < sections.length; i++) {
+            if (!isEmpty(sections[i])) {
+                map.put(i + minSection, sections[i]);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Creates an independent copy of this chunk's data, e.g. to read it from another thread
+     */
+    @NotNull
+    public TrackedChunk copy() {
+        final TrackedChunk copy = new TrackedChunk(x, z);
+        copy.minSection = minSection;
+        copy.sections = new long[sections.length][];
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i] != null) {
+                copy.sections[i] = sections[i].clone();
+            }
+        }
+        copy.placers = new char[placers.length][];
+        for (int i = 0; i < placers.length; i++) {
+            if (placers[i] != null) {
+                copy.placers[i] = placers[i].clone();
+            }
+        }
+        copy.palette.addAll(palette);
+        copy.times = new SectionTimes[times.length];
+        for (int i = 0; i < times.length; i++) {
+            if (times[i] != null) {
+                copy.times[i] = times[i].copy();
+            }
+        }
+        copy.dirty = dirty;
+        return copy;
+    }
+
+    /**
+     * Counts all tracked blocks in this chunk
+     */
+    public int count() {
+        int count = 0;
+        for (final long[] words : sections) {
+            if (words == null) continue;
+            for (final long word : words) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (final long[] words : sections) {
+            if (!isEmpty(words)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(@Nullable final long[] words) {
+        if (words == null) return true;
+        for (final long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    private long[] getOrCreateSection(final int sectionY) {
+        if (sections.length == 0) {
+            sections = new long[1][];
+            placers = new char[1][];
+            times = new SectionTimes[1];
+            minSection = sectionY;
+        } else if (sectionY < minSection) {
+            final long[][] grown = new long[sections.length + minSection - sectionY][];
+            System.arraycopy(sections, 0, grown, minSection - sectionY, sections.length);
+            final char[][] grownPlacers = new char[grown.length][];
+            System.arraycopy(placers, 0, grownPlacers, minSection - sectionY, placers.length);
+            final SectionTimes[] grownTimes = new SectionTimes[grown.length];
+            System.arraycopy(times, 0, grownTimes, minSection - sectionY, times.length);
+            sections = grown;
+            placers = grownPlacers;
+            times = grownTimes;
+            minSection = sectionY;
+        } else if (sectionY >= minSection + sections.length) {
+            final long[][] grown = new long[sectionY - minSection + 1][];
+            System.arraycopy(sections, 0, grown, 0, sections.length);
+            final char[][] grownPlacers = new char[grown.length][];
+            System.arraycopy(placers, 0, grownPlacers, 0, placers.length);
+            final SectionTimes[] grownTimes = new SectionTimes[grown.length];
+            System.arraycopy(times, 0, grownTimes, 0, times.length);
+            sections = grown;
+            placers = grownPlacers;
+            times = grownTimes;
+        }
+        final int index = sectionY - minSection;
+        long[] words = sections[index];
+        if (words == null) {
+            words = new long[BlockTrackerStorage.WORDS_PER_SECTION];
+            sections[index] = words;
+        }
+        return words;
+    }
+
+    /**
+     * Placement times of one section, stored as block indices and minutes sorted by block index
+     */
+    private static final class SectionTimes {
+        private short[] indices = new short[8];
+        private int[] minutes = new int[8];
+        private int size = 0;
+
+        private int get(final int blockIndex) {
+            final int i = Arrays.binarySearch(indices, 0, size, (short) blockIndex);
+            return i >= 0 ? minutes[i] : 0;
+        }
+
+        /**
+         * Sets the placement time of a block. 0 removes it.
+         *
+         * @return true when the value has changed
+         */
+        private boolean put(final int blockIndex, final int minute) {
+            int i = Arrays.binarySearch(indices, 0, size, (short) blockIndex);
+            if (i >= 0) {
+                if (minutes[i] == minute) return false;
+                if (minute == 0) {
+                    System.arraycopy(indices, i + 1, indices, i, size - i - 1);
+                    System.arraycopy(minutes, i + 1, minutes, i, size - i - 1);
+                    size--;
+                } else {
+                    minutes[i] = minute;
+                }
+                return true;
+            }
+            if (minute == 0) return false;
+            i = -i - 1;
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size << 1);
+                minutes = Arrays.copyOf(minutes, size << 1);
+            }
+            System.arraycopy(indices, i, indices, i + 1, size - i);
+            System.arraycopy(minutes, i, minutes, i + 1, size - i);
+            indices[i] = (short) blockIndex;
+            minutes[i] = minute;
+            size++;
+            return true;
+        }
+
+        private SectionTimes copy() {
+            final SectionTimes copy = new SectionTimes();
+            copy.indices = Arrays.copyOf(indices, Math.max(8, size));
+            copy.minutes = Arrays.copyOf(minutes, Math.max(8, size));
+            copy.size = size;
+            return copy;
+        }
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Internal storage used by the {@link de.jeff_media.jefflib.BlockTracker}. Should not be used from the outside
+ */
+
+package de.jeff_media.jefflib.internal.blocktracker;
@@ -0,0 +1,99 @@
+package de.jeff_media.jefflib.internal.commands;
+
+import de.jeff_media.jefflib.BlockTracker;
+import de.jeff_media.jefflib.data.BlockTrackerStats;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prints the {@link BlockTracker} statistics. Usage: /command [world] [heaviest chunks]
+ */
+@InternalOnly
+public final class BlockTrackerStatsCommand implements CommandExecutor, TabCompleter {
+
+    private static final int DEFAULT_HEAVIEST_CHUNKS = 5;
+
+    @Override
+    public boolean onCommand(@NotNull final CommandSender sender, @NotNull final Command command, @NotNull final String label, @NotNull final String[] args) {
+        final List<World> worlds = new ArrayList<>();
+        int heaviestChunks = DEFAULT_HEAVIEST_CHUNKS;
+        for (final String arg : args) {
+            final World world = Bukkit.getWorld(arg);
+            if (world != null) {
+                worlds.add(world);
+                continue;
+            }
+            try {
+                heaviestChunks = Integer.parseInt(arg);
+            } catch (final NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Unknown world: " + arg);
+                return true;
+            }
+        }
+        if (worlds.isEmpty()) {
+            worlds.addAll(Bukkit.getWorlds());
+        }
+
+        boolean printedLatencies = false;
+        for (final World world : worlds) {
+            final BlockTrackerStats stats = BlockTracker.getStats(world, heaviestChunks);
+            sender.sendMessage(ChatColor.GOLD + "" + ChatColor.BOLD + stats.getWorld());
+            sender.sendMessage(ChatColor.GRAY + "Cached chunks: " + ChatColor.WHITE + stats.getCachedChunks()
+                    + ChatColor.GRAY + ", tracked blocks: " + ChatColor.WHITE + stats.getTrackedBlocks()
+                    + ChatColor.GRAY + ", stored bytes: " + ChatColor.WHITE + stats.getStoredBytes());
+            for (final BlockTrackerStats.ChunkStats chunk : stats.getHeaviestChunks()) {
+                sender.sendMessage(ChatColor.DARK_GRAY + " - " + ChatColor.GRAY + "Chunk " + chunk.getX() + ", " + chunk.getZ() + ": "
+                        + ChatColor.WHITE + chunk.getStoredBytes() + ChatColor.GRAY + " bytes, "
+                        + ChatColor.WHITE + chunk.getTrackedBlocks() + ChatColor.GRAY + " blocks");
+            }
+            if (!printedLatencies) {
+                printedLatencies = true;
+                if (!BlockTracker.isMetricsEnabled()) {
+                    sender.sendMessage(ChatColor.GRAY + "Latency metrics are disabled.");
+                } else {
+                    sendHistogram(sender, "Queries", stats.getQueries());
+                    sendHistogram(sender, "Updates", stats.getUpdates());
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void sendHistogram(final CommandSender sender, final String name, final BlockTrackerStats.Histogram histogram) {
+        sender.sendMessage(ChatColor.GRAY + name + ": " + ChatColor.WHITE + histogram.getCount()
+                + ChatColor.GRAY + ", mean " + ChatColor.WHITE + formatNanos((long) histogram.getMeanNanos())
+                + ChatColor.GRAY + ", p99 " + ChatColor.WHITE + formatNanos(histogram.getPercentileNanos(0.99))
+                + ChatColor.GRAY + ", max " + ChatColor.WHITE + formatNanos(histogram.getMaxNanos()));
+    }
+
+    private static String formatNanos(final long nanos) {
+        if (nanos < 1000) return nanos + "ns";
+        if (nanos < 1000000) return String.format(Locale.ROOT, "%.1f\u00B5s", nanos / 1000D);
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1000000D);
+    }
+
+    @Override
+    public List<String> onTabComplete(@NotNull final CommandSender sender, @NotNull final Command command, @NotNull final String alias, @NotNull final String[] args) {
+        if (args.length == 0) return Collections.emptyList();
+        final String prefix = args[args.length - 1].toLowerCase(Locale.ROOT);
+        final List<String> completions = new ArrayList<>();
+        for (final World world : Bukkit.getWorlds()) {
+            if (world.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                completions.add(world.getName());
+            }
+        }
+        return completions;
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Internal command executors. Should not be used from the outside
+ */
+
+package de.jeff_media.jefflib.internal.commands;
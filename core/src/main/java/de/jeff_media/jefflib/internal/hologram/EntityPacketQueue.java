@@ -0,0 +1,138 @@
+package de.jeff_media.jefflib.internal.hologram;
+
+import de.jeff_media.jefflib.JeffLib;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.experimental.UtilityClass;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Collects the hologram entities that should be shown to or hidden from each player, and sends them once per tick.
+ * All hidden entities of a player are removed using a single packet. Showing and then hiding the same entity during
+ * the same tick cancels out. Per-player names are sent after the spawn packets.
+ */
+@InternalOnly
+@UtilityClass
+public final class EntityPacketQueue {
+
+    private static final Map<UUID, PlayerQueue> QUEUES = new HashMap<>();
+    private static boolean scheduled = false;
+
+    /**
+     * Queues spawn packets for the given entities
+     */
+    public static void show(@NotNull final Player player, @NotNull final Collection<?> entities) {
+        if (entities.isEmpty()) return;
+        final PlayerQueue queue = getQueue(player);
+        for (final Object entity : entities) {
+            if (!removeIdentical(queue.removes, entity)) {
+                queue.spawns.add(entity);
+            }
+        }
+    }
+
+    /**
+     * Queues remove packets for the given entities
+     */
+    public static void hide(@NotNull final Player player, @NotNull final Collection<?> entities) {
+        if (entities.isEmpty()) return;
+        final PlayerQueue queue = getQueue(player);
+        for (final Object entity : entities) {
+            // If the spawn packet hasn't been sent yet, the player never saw this entity
+            if (!removeIdentical(queue.spawns, entity)) {
+                queue.removes.add(entity);
+            }
+            for (int i = queue.renames.size() - 1; i >= 0; i--) {
+                if (queue.renames.get(i).entity == entity) {
+                    queue.renames.remove(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a metadata packet that changes the name of an entity only for this player
+     */
+    public static void rename(@NotNull final Player player, @NotNull final Object entity, @NotNull final String name) {
+        final PlayerQueue queue = getQueue(player);
+        for (final Rename rename : queue.renames) {
+            if (rename.entity == entity) {
+                rename.name = name;
+                return;
+            }
+        }
+        queue.renames.add(new Rename(entity, name));
+    }
+
+    /**
+     * Forgets everything queued for a player
+     */
+    public static void remove(@NotNull final UUID uuid) {
+        QUEUES.remove(uuid);
+    }
+
+    /**
+     * Sends all queued packets right away
+     */
+    public static void flush() {
+        scheduled = false;
+        if (QUEUES.isEmpty()) return;
+        for (final Map.Entry<UUID, PlayerQueue> entry : QUEUES.entrySet()) {
+            final Player player = Bukkit.getPlayer(entry.getKey());
+            if (player == null) continue;
+            final PlayerQueue queue = entry.getValue();
+            if (!queue.removes.isEmpty()) {
+                JeffLib.getNMSHandler().hideEntitiesFromPlayer(queue.removes, player);
+            }
+            if (!queue.spawns.isEmpty()) {
+                JeffLib.getNMSHandler().showEntitiesToPlayer(queue.spawns, player);
+            }
+            for (final Rename rename : queue.renames) {
+                JeffLib.getNMSHandler().sendNMSEntityName(rename.entity, rename.name, player);
+            }
+        }
+        QUEUES.clear();
+    }
+
+    private static PlayerQueue getQueue(final Player player) {
+        if (!scheduled) {
+            scheduled = true;
+            Bukkit.getScheduler().runTask(JeffLib.getPlugin(), EntityPacketQueue::flush);
+        }
+        return QUEUES.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerQueue());
+    }
+
+    private static boolean removeIdentical(final List<Object> list, final Object entity) {
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (list.get(i) == entity) {
+                list.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class PlayerQueue {
+        private final List<Object> spawns = new ArrayList<>();
+        private final List<Object> removes = new ArrayList<>();
+        private final List<Rename> renames = new ArrayList<>();
+    }
+
+    private static final class Rename {
+        private final Object entity;
+        private String name;
+
+        private Rename(final Object entity, final String name) {
+            this.entity = entity;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package de.jeff_media.jefflib.internal.hologram;
+
+import de.jeff_media.jefflib.JeffLib;
+import de.jeff_media.jefflib.data.Hologram;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Creates many holograms on the main thread, but only as many per tick as fit into the time budget
+ */
+@InternalOnly
+public final class HologramCreationQueue implements Consumer<BukkitTask> {
+
+    private final List<Hologram> holograms;
+    private final LongSupplier budgetNanos;
+    private final CompletableFuture<List<Hologram>> future = new CompletableFuture<>();
+    private final List<Hologram> created;
+    private int next = 0;
+
+    private HologramCreationQueue(final List<Hologram> holograms, final LongSupplier budgetNanos) {
+        this.holograms = holograms;
+        this.budgetNanos = budgetNanos;
+        this.created = new ArrayList<>(holograms.size());
+    }
+
+    /**
+     * Starts creating the given holograms during the next ticks. Can be called from any thread.
+     *
+     * @param holograms   Holograms to create
+     * @param budgetNanos Time budget per tick
+     * @return CompletableFuture that completes on the main thread with all holograms that have been created
+     */
+    @NotNull
+    public static CompletableFuture<List<Hologram>> createAll(@NotNull final List<Hologram> holograms, @NotNull final LongSupplier budgetNanos) {
+        final HologramCreationQueue queue = new HologramCreationQueue(holograms, budgetNanos);
+        Bukkit.getScheduler().runTaskTimer(JeffLib.getPlugin(), queue, 1, 1);
+        return queue.future;
+    }
+
+    @Override
+    public void accept(final BukkitTask task) {
+        final long start = System.nanoTime();
+        final long budget = budgetNanos.getAsLong();
+        // At least one hologram is created every tick, so that a small budget can't stop loading
+        do {
+            if (next >= holograms.size()) {
+                task.cancel();
+                future.complete(created);
+                return;
+            }
+            final Hologram hologram = holograms.get(next++);
+            try {
+                hologram.create();
+                created.add(hologram);
+            } catch (final Throwable throwable) {
+                JeffLib.getPlugin().getLogger().warning("Could not create hologram at " + hologram.getLocation() + ": " + throwable.getMessage());
+            }
+        } while (System.nanoTime() - start < budget);
+    }
+}
@@ -0,0 +1,190 @@
+package de.jeff_media.jefflib.internal.hologram;
+
+import de.jeff_media.jefflib.McVersion;
+import de.jeff_media.jefflib.data.Hologram;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Decides whether a player should see a hologram that is in range. Holograms outside the player's view cone, or behind
+ * occluding blocks, are culled. Occlusion is checked by marching a ray through the blocks between the player's eyes and
+ * the hologram, only looking at blocks in loaded chunks. To prevent flickering, shown holograms use a wider view cone,
+ * and are only hidden after failing the check several times in a row.
+ */
+@InternalOnly
+public final class HologramCuller {
+
+    /**
+     * Holograms this close to the player are never culled
+     */
+    private static final double NEAR_DISTANCE_SQUARED = 4 * 4;
+    private static final double HYSTERESIS_DEGREES = 15;
+    private static final int HIDE_AFTER_MISSES = 3;
+
+    private final Map<UUID, Map<Hologram, Integer>> misses = new HashMap<>();
+    private double angle;
+    private double cosAngle;
+    private double cosAngleShown;
+    private boolean occlusion = true;
+
+    public HologramCuller(final double angle) {
+        setAngle(angle);
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    /**
+     * Sets the half angle of the view cone in degrees
+     */
+    public void setAngle(final double angle) {
+        this.angle = angle;
+        this.cosAngle = Math.cos(Math.toRadians(Math.min(180, angle)));
+        this.cosAngleShown = Math.cos(Math.toRadians(Math.min(180, angle + HYSTERESIS_DEGREES)));
+    }
+
+    public boolean isOcclusion() {
+        return occlusion;
+    }
+
+    public void setOcclusion(final boolean occlusion) {
+        this.occlusion = occlusion;
+    }
+
+    /**
+     * Checks whether a player should see a hologram that is in range
+     *
+     * @param player   Player
+     * @param location The player's current location, including the direction
+     * @param hologram Hologram
+     * @param shown    Whether the player currently sees the hologram
+     */
+    public boolean isVisible(@NotNull final Player player, @NotNull final Location location, @NotNull final Hologram hologram, final boolean shown) {
+        final boolean visible = check(player, location, hologram, shown);
+        final Map<Hologram, Integer> playerMisses = misses.get(player.getUniqueId());
+        if (visible || !shown) {
+            if (playerMisses != null) {
+                playerMisses.remove(hologram);
+            }
+            return visible;
+        }
+        final Map<Hologram, Integer> map = playerMisses != null ? playerMisses : misses.computeIfAbsent(player.getUniqueId(), __ -> new IdentityHashMap<>());
+        final int count = map.merge(hologram, 1, Integer::sum);
+        if (count < HIDE_AFTER_MISSES) return true;
+        map.remove(hologram);
+        return false;
+    }
+
+    /**
+     * Forgets the culling state of a player
+     */
+    public void removePlayer(@NotNull final UUID uuid) {
+        misses.remove(uuid);
+    }
+
+    /**
+     * Forgets the culling state of a hologram for a player
+     */
+    public void removeHologram(@NotNull final UUID uuid, @NotNull final Hologram hologram) {
+        final Map<Hologram, Integer> map = misses.get(uuid);
+        if (map != null) {
+            map.remove(hologram);
+        }
+    }
+
+    public void clear() {
+        misses.clear();
+    }
+
+    private boolean check(final Player player, final Location location, final Hologram hologram, final boolean shown) {
+        final Location target = hologram.getLocation();
+        final double eyeX = location.getX();
+        final double eyeY = location.getY() + player.getEyeHeight();
+        final double eyeZ = location.getZ();
+        final double targetX = target.getX();
+        // Aim at the middle of the hologram
+        final double targetY = target.getY() + hologram.getLineOffset() * Math.max(0, hologram.getLines().size() - 1) / 2;
+        final double targetZ = target.getZ();
+        final double dx = targetX - eyeX;
+        final double dy = targetY - eyeY;
+        final double dz = targetZ - eyeZ;
+        final double distanceSquared = dx * dx + dy * dy + dz * dz;
+        if (distanceSquared <= NEAR_DISTANCE_SQUARED) return true;
+
+        final Vector direction = location.getDirection();
+        final double cos = (dx * direction.getX() + dy * direction.getY() + dz * direction.getZ()) / Math.sqrt(distanceSquared);
+        if (cos < (shown ? cosAngleShown : cosAngle)) return false;
+
+        return !occlusion || !isOccluded(location.getWorld(), eyeX, eyeY, eyeZ, targetX, targetY, targetZ);
+    }
+
+    /**
+     * Walks through all blocks between the two points, without the start and end block
+     */
+    private boolean isOccluded(final World world, final double fromX, final double fromY, final double fromZ, final double toX, final double toY, final double toZ) {
+        if (world == null) return false;
+        final int minHeight = McVersion.isAtLeast(1, 17, 0) ? world.getMinHeight() : 0;
+        final int maxHeight = world.getMaxHeight();
+
+        int x = floor(fromX);
+        int y = floor(fromY);
+        int z = floor(fromZ);
+        final int endX = floor(toX);
+        final int endY = floor(toY);
+        final int endZ = floor(toZ);
+        final double dx = toX - fromX;
+        final double dy = toY - fromY;
+        final double dz = toZ - fromZ;
+        final int stepX = dx > 0 ? 1 : -1;
+        final int stepY = dy > 0 ? 1 : -1;
+        final int stepZ = dz > 0 ? 1 : -1;
+        final double deltaX = dx == 0 ? Double.MAX_VALUE : Math.abs(1 / dx);
+        final double deltaY = dy == 0 ? Double.MAX_VALUE : Math.abs(1 / dy);
+        final double deltaZ = dz == 0 ? Double.MAX_VALUE : Math.abs(1 / dz);
+        double nextX = dx == 0 ? Double.MAX_VALUE : (dx > 0 ? x + 1 - fromX : fromX - x) * deltaX;
+        double nextY = dy == 0 ? Double.MAX_VALUE : (dy > 0 ? y + 1 - fromY : fromY - y) * deltaY;
+        double nextZ = dz == 0 ? Double.MAX_VALUE : (dz > 0 ? z + 1 - fromZ : fromZ - z) * deltaZ;
+
+        int chunkX = Integer.MIN_VALUE;
+        int chunkZ = Integer.MIN_VALUE;
+        boolean chunkLoaded = false;
+        final int maxSteps = Math.abs(endX - x) + Math.abs(endY - y) + Math.abs(endZ - z);
+        for (int i = 0; i < maxSteps; i++) {
+            if (nextX < nextY && nextX < nextZ) {
+                x += stepX;
+                nextX += deltaX;
+            } else if (nextY < nextZ) {
+                y += stepY;
+                nextY += deltaY;
+            } else {
+                z += stepZ;
+                nextZ += deltaZ;
+            }
+            if (x == endX && y == endY && z == endZ) return false;
+            if (y < minHeight || y >= maxHeight) continue;
+            if (x >> 4 != chunkX || z >> 4 != chunkZ) {
+                chunkX = x >> 4;
+                chunkZ = z >> 4;
+                // Never load chunks just for culling
+                chunkLoaded = world.isChunkLoaded(chunkX, chunkZ);
+            }
+            if (chunkLoaded && world.getBlockAt(x, y, z).getType().isOccluding()) return true;
+        }
+        return false;
+    }
+
+    private static int floor(final double value) {
+        final int floor = (int) value;
+        return value < floor ? floor - 1 : floor;
+    }
+}
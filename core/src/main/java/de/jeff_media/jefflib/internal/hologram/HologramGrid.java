@@ -0,0 +1,178 @@
+package de.jeff_media.jefflib.internal.hologram;
+
+import de.jeff_media.jefflib.data.Hologram;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import de.jeff_media.jefflib.internal.blocktracker.LongHashMap;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Spatial hash of all holograms, grouped by world and chunk. Used to only check the holograms near a player instead of all holograms.
+ */
+@InternalOnly
+public final class HologramGrid {
+
+    private static final int CELL_SHIFT = 4;
+
+    private final Map<UUID, WorldGrid> worlds = new HashMap<>();
+    private final Map<Hologram, Cell> cells = new IdentityHashMap<>();
+
+    /**
+     * Adds a hologram at its current location. Does nothing if the hologram is already part of the grid.
+     *
+     * @throws IllegalArgumentException if the hologram's location has no world
+     */
+    public void add(@NotNull final Hologram hologram) {
+        if (cells.containsKey(hologram)) return;
+        final Location location = hologram.getLocation();
+        final World world = getWorld(location);
+        final WorldGrid grid = worlds.computeIfAbsent(world.getUID(), uuid -> new WorldGrid());
+        final long key = getKey(location.getBlockX() >> CELL_SHIFT, location.getBlockZ() >> CELL_SHIFT);
+        List<Hologram> list = grid.cells.get(key);
+        if (list == null) {
+            list = new ArrayList<>(2);
+            grid.cells.put(key, list);
+        }
+        list.add(hologram);
+        grid.size++;
+        final double radius = hologram.getVisibilityRadius();
+        grid.radii.merge(radius, 1, Integer::sum);
+        cells.put(hologram, new Cell(world.getUID(), key, radius));
+    }
+
+    /**
+     * Removes a hologram from the grid
+     *
+     * @return true if the hologram was part of the grid
+     */
+    public boolean remove(@NotNull final Hologram hologram) {
+        final Cell cell = cells.remove(hologram);
+        if (cell == null) return false;
+        final WorldGrid grid = worlds.get(cell.world);
+        final List<Hologram> list = grid.cells.get(cell.key);
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == hologram) {
+                list.remove(i);
+                break;
+            }
+        }
+        if (list.isEmpty()) {
+            grid.cells.remove(cell.key);
+        }
+        // Keep the largest radius up to date, so that one large hologram doesn't widen every lookup after it's gone
+        grid.radii.computeIfPresent(cell.radius, (radius, count) -> count == 1 ? null : count - 1);
+        if (--grid.size == 0) {
+            worlds.remove(cell.world);
+        }
+        return true;
+    }
+
+    /**
+     * Moves a hologram to the cell of its current location, e.g. after its location or visibility radius has changed
+     *
+     * @throws IllegalArgumentException if the hologram's new location has no world. The hologram stays in its old cell.
+     */
+    public void update(@NotNull final Hologram hologram) {
+        getWorld(hologram.getLocation());
+        if (remove(hologram)) {
+            add(hologram);
+        }
+    }
+
+    public boolean contains(@NotNull final Hologram hologram) {
+        return cells.containsKey(hologram);
+    }
+
+    public int size() {
+        return cells.size();
+    }
+
+    @NotNull
+    public Collection<Hologram> getAll() {
+        return cells.keySet();
+    }
+
+    public void clear() {
+        worlds.clear();
+        cells.clear();
+    }
+
+    /**
+     * Adds all holograms to the given list that could be visible from the given location, regardless of their own visibility radius.
+     * All holograms in cells that are closer than the largest visibility radius of this world are included.
+     */
+    public void collectNearby(@NotNull final Location location, @NotNull final List<Hologram> result) {
+        final World world = location.getWorld();
+        if (world == null) return;
+        final WorldGrid grid = worlds.get(world.getUID());
+        if (grid == null) return;
+        // Round up, so that holograms in neighbouring cells are included when the radius crosses a cell border
+        final int radius = ((int) Math.ceil(grid.getMaxRadius()) + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT;
+        final int diameter = radius * 2 + 1;
+        if ((long) diameter * diameter > grid.cells.size()) {
+            // Checking every cell would be slower than looking at all holograms of this world
+            for (final List<Hologram> list : grid.cells.values()) {
+                result.addAll(list);
+            }
+            return;
+        }
+        final int cellX = location.getBlockX() >> CELL_SHIFT;
+        final int cellZ = location.getBlockZ() >> CELL_SHIFT;
+        for (int x = cellX - radius; x <= cellX + radius; x++) {
+            for (int z = cellZ - radius; z <= cellZ + radius; z++) {
+                final List<Hologram> list = grid.cells.get(getKey(x, z));
+                if (list != null) {
+                    result.addAll(list);
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private static World getWorld(@NotNull final Location location) {
+        final World world = location.getWorld();
+        if (world == null) {
+            throw new IllegalArgumentException("Hologram location has no world");
+        }
+        return world;
+    }
+
+    private static long getKey(final int cellX, final int cellZ) {
+        return (long) cellX << 32 | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static final class WorldGrid {
+        private final LongHashMap<List<Hologram>> cells = new LongHashMap<>();
+        /**
+         * Amount of holograms per visibility radius
+         */
+        private final TreeMap<Double, Integer> radii = new TreeMap<>();
+        private int size = 0;
+
+        private double getMaxRadius() {
+            return radii.isEmpty() ? 0 : radii.lastKey();
+        }
+    }
+
+    private static final class Cell {
+        private final UUID world;
+        private final long key;
+        private final double radius;
+
+        private Cell(final UUID world, final long key, final double radius) {
+            this.world = world;
+            this.key = key;
+            this.radius = radius;
+        }
+    }
+}
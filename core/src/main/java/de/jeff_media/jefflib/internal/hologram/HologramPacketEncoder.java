@@ -0,0 +1,163 @@
+package de.jeff_media.jefflib.internal.hologram;
+
+import de.jeff_media.jefflib.data.Hologram;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.SneakyThrows;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the bodies of the spawn and metadata packets for {@link PacketHologramLine}s. Every NMS module reads these
+ * bytes into its own packet classes. Only the entity type IDs and the indices of the type-specific metadata differ
+ * between versions, everything else is the same from 1.16 to 1.18.
+ */
+@InternalOnly
+public final class HologramPacketEncoder {
+
+    private static final int SERIALIZER_BYTE = 0;
+    private static final int SERIALIZER_FLOAT = 2;
+    private static final int SERIALIZER_OPTIONAL_COMPONENT = 5;
+    private static final int SERIALIZER_BOOLEAN = 7;
+
+    private static final int INDEX_FLAGS = 0;
+    private static final int INDEX_CUSTOM_NAME = 2;
+    private static final int INDEX_CUSTOM_NAME_VISIBLE = 3;
+    private static final int INDEX_SILENT = 4;
+    private static final int INDEX_NO_GRAVITY = 5;
+
+    private static final byte FLAG_INVISIBLE = 0x20;
+    private static final byte ARMOR_STAND_FLAGS = 0x01 | 0x10; // small, marker
+
+    private final int armorStandTypeId;
+    private final int effectCloudTypeId;
+    private final int armorStandFlagsIndex;
+    private final int effectCloudRadiusIndex;
+
+    /**
+     * @param armorStandTypeId       Network ID of the armor stand entity type
+     * @param effectCloudTypeId      Network ID of the area effect cloud entity type
+     * @param armorStandFlagsIndex   Metadata index of the armor stand flags
+     * @param effectCloudRadiusIndex Metadata index of the area effect cloud radius
+     */
+    public HologramPacketEncoder(final int armorStandTypeId, final int effectCloudTypeId, final int armorStandFlagsIndex, final int effectCloudRadiusIndex) {
+        this.armorStandTypeId = armorStandTypeId;
+        this.effectCloudTypeId = effectCloudTypeId;
+        this.armorStandFlagsIndex = armorStandFlagsIndex;
+        this.effectCloudRadiusIndex = effectCloudRadiusIndex;
+    }
+
+    /**
+     * Checks whether the line has to be spawned using the living entity spawn packet instead of the object spawn packet
+     */
+    public static boolean isLiving(@NotNull final PacketHologramLine line) {
+        return line.getType() == Hologram.Type.ARMORSTAND;
+    }
+
+    /**
+     * Writes the spawn packet. Armor stands use the layout of the living entity spawn packet, effect clouds the layout
+     * of the object spawn packet, see {@link #isLiving(PacketHologramLine)}.
+     */
+    @SneakyThrows
+    @NotNull
+    public byte[] encodeSpawn(@NotNull final PacketHologramLine line) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        writeVarInt(out, line.getId());
+        out.writeLong(line.getUuid().getMostSignificantBits());
+        out.writeLong(line.getUuid().getLeastSignificantBits());
+        if (isLiving(line)) {
+            writeVarInt(out, armorStandTypeId);
+            writePosition(out, line);
+            out.writeByte(0); // yaw
+            out.writeByte(0); // pitch
+            out.writeByte(0); // head yaw
+        } else {
+            writeVarInt(out, effectCloudTypeId);
+            writePosition(out, line);
+            out.writeByte(0); // pitch
+            out.writeByte(0); // yaw
+            out.writeInt(0); // data
+        }
+        out.writeShort(0); // velocity
+        out.writeShort(0);
+        out.writeShort(0);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the metadata packet containing all values that differ from the client's defaults
+     */
+    @SneakyThrows
+    @NotNull
+    public byte[] encodeMetadata(@NotNull final PacketHologramLine line) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        writeVarInt(out, line.getId());
+        final boolean armorStand = line.getType() == Hologram.Type.ARMORSTAND;
+        writeHeader(out, INDEX_FLAGS, SERIALIZER_BYTE);
+        out.writeByte(armorStand ? FLAG_INVISIBLE : 0);
+        writeName(out, line.getName());
+        writeHeader(out, INDEX_CUSTOM_NAME_VISIBLE, SERIALIZER_BOOLEAN);
+        out.writeBoolean(true);
+        writeHeader(out, INDEX_SILENT, SERIALIZER_BOOLEAN);
+        out.writeBoolean(true);
+        writeHeader(out, INDEX_NO_GRAVITY, SERIALIZER_BOOLEAN);
+        out.writeBoolean(true);
+        if (armorStand) {
+            writeHeader(out, armorStandFlagsIndex, SERIALIZER_BYTE);
+            out.writeByte(ARMOR_STAND_FLAGS);
+        } else {
+            writeHeader(out, effectCloudRadiusIndex, SERIALIZER_FLOAT);
+            out.writeFloat(0);
+        }
+        out.writeByte(0xFF);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a metadata packet that only changes the name
+     *
+     * @param name Name as chat component JSON
+     */
+    @SneakyThrows
+    @NotNull
+    public byte[] encodeName(@NotNull final PacketHologramLine line, @NotNull final String name) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(name.length() + 16);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        writeVarInt(out, line.getId());
+        writeName(out, name);
+        out.writeByte(0xFF);
+        return bytes.toByteArray();
+    }
+
+    private static void writePosition(final DataOutputStream out, final PacketHologramLine line) throws IOException {
+        out.writeDouble(line.getX());
+        out.writeDouble(line.getY());
+        out.writeDouble(line.getZ());
+    }
+
+    private static void writeName(final DataOutputStream out, final String json) throws IOException {
+        writeHeader(out, INDEX_CUSTOM_NAME, SERIALIZER_OPTIONAL_COMPONENT);
+        out.writeBoolean(true);
+        final byte[] utf8 = json.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length);
+        out.write(utf8);
+    }
+
+    private static void writeHeader(final DataOutputStream out, final int index, final int serializer) throws IOException {
+        out.writeByte(index);
+        writeVarInt(out, serializer);
+    }
+
+    private static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
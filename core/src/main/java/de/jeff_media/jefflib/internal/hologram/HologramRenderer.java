@@ -0,0 +1,120 @@
+package de.jeff_media.jefflib.internal.hologram;
+
+import de.jeff_media.jefflib.TextUtils;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.experimental.UtilityClass;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders hologram lines for single viewers. Every line template is only parsed once. The rendered text is cached by
+ * template and placeholder values, so that viewers that get the same placeholder values share the same rendered line,
+ * and lines without placeholders are only rendered once for everyone.
+ */
+@InternalOnly
+@UtilityClass
+public final class HologramRenderer {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("%[^%\\s]+%");
+    private static final int MAX_CACHE_SIZE = 4096;
+    private static final String[] NO_PLACEHOLDERS = new String[0];
+
+    private static final Map<String, Template> TEMPLATES = new LinkedHashMap<String, Template>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Template> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    private static final Map<String, String> RENDERED = new LinkedHashMap<String, String>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    @Nullable private static Boolean placeholderApiInstalled = null;
+
+    /**
+     * Checks whether a line can look different for every viewer
+     */
+    public static boolean isPlayerSpecific(@NotNull final String line) {
+        return getTemplate(line).placeholders.length > 0;
+    }
+
+    /**
+     * Renders a line for a single viewer
+     */
+    @NotNull
+    public static String render(@NotNull final String line, @Nullable final OfflinePlayer viewer) {
+        final Template template = getTemplate(line);
+        if (template.placeholders.length == 0) {
+            return template.rendered;
+        }
+        final String[] values = new String[template.placeholders.length];
+        final StringBuilder key = new StringBuilder(line.length() + 32).append(line);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = TextUtils.replacePlaceholders(template.placeholders[i], viewer);
+            key.append('\0').append(values[i]);
+        }
+        return RENDERED.computeIfAbsent(key.toString(), __ -> {
+            String text = template.prepared;
+            for (int i = 0; i < values.length; i++) {
+                text = text.replace(template.placeholders[i], values[i]);
+            }
+            return TextUtils.color(text);
+        });
+    }
+
+    public static void clearCache() {
+        TEMPLATES.clear();
+        RENDERED.clear();
+    }
+
+    private static Template getTemplate(final String line) {
+        return TEMPLATES.computeIfAbsent(line, Template::new);
+    }
+
+    private static boolean isPlaceholderApiInstalled() {
+        if (placeholderApiInstalled == null) {
+            placeholderApiInstalled = Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null;
+        }
+        return placeholderApiInstalled;
+    }
+
+    private static final class Template {
+        /**
+         * Line with emojis replaced, but without placeholders and colors applied
+         */
+        private final String prepared;
+        private final String[] placeholders;
+        /**
+         * Fully rendered line, if it has no placeholders
+         */
+        @Nullable private final String rendered;
+
+        private Template(final String line) {
+            prepared = TextUtils.replaceEmojis(line);
+            final List<String> found = new ArrayList<>();
+            if (isPlaceholderApiInstalled()) {
+                final Matcher matcher = PLACEHOLDER.matcher(prepared);
+                while (matcher.find()) {
+                    if (!found.contains(matcher.group())) {
+                        found.add(matcher.group());
+                    }
+                }
+            }
+            placeholders = found.isEmpty() ? NO_PLACEHOLDERS : found.toArray(new String[0]);
+            rendered = placeholders.length == 0 ? TextUtils.color(prepared) : null;
+        }
+    }
+}
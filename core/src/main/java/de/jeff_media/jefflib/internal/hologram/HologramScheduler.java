@@ -0,0 +1,181 @@
+package de.jeff_media.jefflib.internal.hologram;
+
+import de.jeff_media.jefflib.JeffLib;
+import de.jeff_media.jefflib.data.Hologram;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Updates holograms periodically using a single task. Holograms are grouped by their update period. Every period has
+ * a wheel with one slot per tick, and new holograms are put into the slot with the fewest holograms, so that updates are
+ * spread evenly across ticks. Updates that don't fit into the time budget of a tick are done during the next tick.
+ */
+@InternalOnly
+public final class HologramScheduler {
+
+    private final Map<Integer, Wheel> wheels = new HashMap<>();
+    private final Map<Hologram, Wheel> scheduled = new IdentityHashMap<>();
+    private final Deque<Hologram> overdue = new ArrayDeque<>();
+    private final Set<Hologram> overdueSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Predicate<Hologram> hasViewers;
+    @Nullable private BukkitTask task = null;
+    private long tick = 0;
+    private long budgetNanos;
+
+    public HologramScheduler(@NotNull final Predicate<Hologram> hasViewers, final long budgetNanos) {
+        this.hasViewers = hasViewers;
+        this.budgetNanos = budgetNanos;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    public void setBudgetNanos(final long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    public int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * Updates the hologram every given amount of ticks. Replaces the previous period of this hologram.
+     */
+    public void schedule(@NotNull final Hologram hologram, final int period) {
+        unschedule(hologram);
+        if (period <= 0) return;
+        final Wheel wheel = wheels.computeIfAbsent(period, Wheel::new);
+        wheel.add(hologram);
+        scheduled.put(hologram, wheel);
+        if (task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(JeffLib.getPlugin(), this::tick, 1, 1);
+        }
+    }
+
+    /**
+     * Stops updating the hologram
+     */
+    public void unschedule(@NotNull final Hologram hologram) {
+        final Wheel wheel = scheduled.remove(hologram);
+        if (wheel == null) return;
+        wheel.remove(hologram);
+        if (wheel.size == 0) {
+            wheels.remove(wheel.period);
+        }
+        if (overdueSet.remove(hologram)) {
+            overdue.removeIf(entry -> entry == hologram);
+        }
+        if (scheduled.isEmpty()) {
+            cancel();
+        }
+    }
+
+    public void clear() {
+        wheels.clear();
+        scheduled.clear();
+        overdue.clear();
+        overdueSet.clear();
+        cancel();
+    }
+
+    private void cancel() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void tick() {
+        final long start = System.nanoTime();
+        tick++;
+        // At least one update is done every tick, so that a small budget can't stop all updates
+        boolean first = true;
+
+        // Updates that didn't fit into the previous ticks come first
+        while (!overdue.isEmpty()) {
+            if (!first && System.nanoTime() - start > budgetNanos) break;
+            first = false;
+            final Hologram hologram = overdue.poll();
+            overdueSet.remove(hologram);
+            update(hologram);
+        }
+
+        for (final Wheel wheel : new ArrayList<>(wheels.values())) {
+            final List<Hologram> due = wheel.slots[(int) (tick % wheel.period)];
+            for (int i = 0; i < due.size(); i++) {
+                final Hologram hologram = due.get(i);
+                if (!hasViewers.test(hologram)) continue;
+                if (!first && System.nanoTime() - start > budgetNanos) {
+                    if (overdueSet.add(hologram)) {
+                        overdue.add(hologram);
+                    }
+                    continue;
+                }
+                first = false;
+                update(hologram);
+            }
+        }
+    }
+
+    private void update(final Hologram hologram) {
+        if (!hasViewers.test(hologram)) return;
+        try {
+            hologram.update();
+        } catch (final Throwable throwable) {
+            JeffLib.getPlugin().getLogger().warning("Could not update hologram at " + hologram.getLocation() + ": " + throwable.getMessage());
+        }
+    }
+
+    private static final class Wheel {
+        private final int period;
+        private final List<Hologram>[] slots;
+        private int size = 0;
+
+        @SuppressWarnings("unchecked")
+        private Wheel(final int period) {
+            this.period = period;
+            this.slots = new List[period];
+            for (int i = 0; i < period; i++) {
+                slots[i] = new ArrayList<>();
+            }
+        }
+
+        private void add(final Hologram hologram) {
+            List<Hologram> emptiest = slots[0];
+            for (final List<Hologram> slot : slots) {
+                if (slot.size() < emptiest.size()) {
+                    emptiest = slot;
+                }
+            }
+            emptiest.add(hologram);
+            size++;
+        }
+
+        private void remove(final Hologram hologram) {
+            for (final List<Hologram> slot : slots) {
+                for (int i = 0; i < slot.size(); i++) {
+                    if (slot.get(i) == hologram) {
+                        slot.remove(i);
+                        size--;
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.jeff_media.jefflib.internal.hologram;
+
+import de.jeff_media.jefflib.data.Hologram;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.Getter;
+import lombok.Setter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hologram line that only exists on the clients. It doesn't have a server-side entity - it only has an entity ID, a
+ * position and a name, and all packets are built from these values directly. Creating it doesn't access the world,
+ * so it can be done from any thread.
+ */
+@InternalOnly
+@Getter
+public final class PacketHologramLine {
+
+    /**
+     * The server counts entity IDs up from 0, so counting down from the top of the range never collides with real entities
+     */
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(Integer.MAX_VALUE);
+
+    private final int id = NEXT_ID.getAndDecrement();
+    private final UUID uuid = new UUID(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong());
+    private final Hologram.Type type;
+    private final double x;
+    private final double y;
+    private final double z;
+    /**
+     * Name as chat component JSON
+     */
+    @Setter
+    @NotNull
+    private volatile String name;
+
+    public PacketHologramLine(@NotNull final Hologram.Type type, final double x, final double y, final double z, @NotNull final String name) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return "PacketHologramLine{" +
+                "id=" + id +
+                ", type=" + type +
+                ", x=" + x +
+                ", y=" + y +
+                ", z=" + z +
+                ", name=" + name +
+                '}';
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Internal data structures used by the {@link de.jeff_media.jefflib.HologramManager}. Should not be used from the outside
+ */
+
+package de.jeff_media.jefflib.internal.hologram;
@@ -3,17 +3,30 @@ package de.jeff_media.jefflib.internal.listeners;
 import de.jeff_media.jefflib.BlockTracker;
 import de.jeff_media.jefflib.JeffLib;
 import de.jeff_media.jefflib.internal.InternalOnly;
-import org.bukkit.Bukkit;
+import de.jeff_media.jefflib.internal.blocktracker.BlockTrackerCache;
+import de.jeff_media.jefflib.internal.blocktracker.BlockTrackerJournal;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.event.world.StructureGrowEvent;
+import org.bukkit.event.world.WorldSaveEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.plugin.Plugin;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Keeps track of player placed blocks
  */
@@ -24,24 +37,82 @@ public final class BlockTrackListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlace(final BlockPlaceEvent event) {
-        if (!BlockTracker.isTrackedBlockType(event.getBlock().getType())) return;
-        BlockTracker.setPlayerPlacedBlock(event.getBlock(), true);
+        if (!BlockTracker.isTrackingAllBlockTypes() && !BlockTracker.isTrackedBlockType(event.getBlock().getType())) return;
+        if (BlockTracker.isTrackingPlacers()) {
+            BlockTracker.setPlayerPlacedBlock(event.getBlock(), event.getPlayer().getUniqueId());
+        } else {
+            BlockTracker.setPlayerPlacedBlock(event.getBlock(), true);
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBreak(final BlockBreakEvent event) {
         if (BlockTracker.isPlayerPlacedBlock(event.getBlock())) {
-            Bukkit.getScheduler().runTaskLater(plugin, () -> BlockTracker.setPlayerPlacedBlock(event.getBlock(), false), 1L);
+            BlockTracker.setPlayerPlacedBlockLater(event.getBlock(), false);
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onStructureGrow(final StructureGrowEvent event) {
+        final List<Block> blocks = new ArrayList<>(event.getBlocks().size());
         for (final BlockState blockState : event.getBlocks()) {
-            final Block block = blockState.getBlock();
-            BlockTracker.setPlayerPlacedBlock(block, false);
+            blocks.add(blockState.getBlock());
+        }
+        BlockTracker.setPlayerPlacedBlocks(blocks, false);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(final BlockExplodeEvent event) {
+        onExplode(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(final EntityExplodeEvent event) {
+        onExplode(event.blockList());
+    }
+
+    private static void onExplode(final List<Block> blockList) {
+        for (final Block block : BlockTracker.filterPlayerPlaced(blockList)) {
+            BlockTracker.setPlayerPlacedBlockLater(block, false);
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(final BlockPistonExtendEvent event) {
+        BlockTracker.movePlayerPlacedBlocks(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(final BlockPistonRetractEvent event) {
+        BlockTracker.movePlayerPlacedBlocks(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onChunkLoad(final ChunkLoadEvent event) {
+        BlockTrackerCache.load(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(final ChunkUnloadEvent event) {
+        BlockTrackerCache.unload(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldSave(final WorldSaveEvent event) {
+        BlockTrackerCache.flush(event.getWorld());
+        BlockTrackerJournal.save(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(final WorldUnloadEvent event) {
+        BlockTrackerCache.unloadWorld(event.getWorld());
+        BlockTrackerJournal.unload(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDisable(final PluginDisableEvent event) {
+        if (event.getPlugin() != plugin) return;
+        BlockTracker.flush();
+    }
 
 }
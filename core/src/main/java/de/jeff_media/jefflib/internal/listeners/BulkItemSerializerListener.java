@@ -0,0 +1,26 @@
+package de.jeff_media.jefflib.internal.listeners;
+
+import de.jeff_media.jefflib.JeffLib;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import de.jeff_media.jefflib.internal.serialization.BulkItemSerializer;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Stops the worker threads of the {@link BulkItemSerializer} when the plugin is disabled
+ */
+@InternalOnly
+public final class BulkItemSerializerListener implements Listener {
+
+    private final Plugin plugin = JeffLib.getPlugin();
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDisable(final PluginDisableEvent event) {
+        if (event.getPlugin() != plugin) return;
+        BulkItemSerializer.shutdown();
+    }
+
+}
@@ -0,0 +1,71 @@
+package de.jeff_media.jefflib.internal.listeners;
+
+import de.jeff_media.jefflib.HologramManager;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import org.bukkit.Location;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+/**
+ * Removes the hologram state of players that quit. When the {@link HologramManager} uses {@link HologramManager.UpdateMode#EVENTS},
+ * also updates the visibility of holograms when players move to another chunk, change worlds or join.
+ */
+@InternalOnly
+public final class HologramListener implements Listener {
+
+    /**
+     * Rotation in degrees that causes a visibility update when culling is enabled
+     */
+    private static final float MIN_ROTATION = 5;
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(final PlayerMoveEvent event) {
+        final Location from = event.getFrom();
+        final Location to = event.getTo();
+        if (to == null || !HologramManager.isEventDriven()) return;
+        if (HologramManager.isCulling() ? isSameBlockAndDirection(from, to) : isSameChunk(from, to)) return;
+        HologramManager.updateVisibility(event.getPlayer(), to);
+    }
+
+    private static boolean isSameChunk(final Location from, final Location to) {
+        return from.getBlockX() >> 4 == to.getBlockX() >> 4 && from.getBlockZ() >> 4 == to.getBlockZ() >> 4 && from.getWorld() == to.getWorld();
+    }
+
+    private static boolean isSameBlockAndDirection(final Location from, final Location to) {
+        return from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY() && from.getBlockZ() == to.getBlockZ() && from.getWorld() == to.getWorld()
+                && Math.abs(from.getYaw() - to.getYaw()) < MIN_ROTATION && Math.abs(from.getPitch() - to.getPitch()) < MIN_ROTATION;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleport(final PlayerTeleportEvent event) {
+        // The player's location is only changed after the event
+        HologramManager.updateVisibilityLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChangedWorld(final PlayerChangedWorldEvent event) {
+        HologramManager.updateVisibilityLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(final PlayerRespawnEvent event) {
+        HologramManager.updateVisibilityLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(final PlayerJoinEvent event) {
+        HologramManager.updateVisibilityLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(final PlayerQuitEvent event) {
+        HologramManager.removePlayer(event.getPlayer());
+    }
+}
@@ -10,6 +10,8 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+
 @InternalOnly
 public interface AbstractNMSHandler {
 
@@ -17,12 +19,26 @@ public interface AbstractNMSHandler {
 
     void changeNMSEntityName(@NotNull Object entity, @NotNull String name);
 
+    void changeNMSEntityName(@NotNull Object entity, @NotNull String name, @NotNull Collection<? extends Player> viewers);
+
+    void sendNMSEntityName(@NotNull Object entity, @NotNull String name, @NotNull Player player);
+
     Object createHologram(@NotNull Location location, @NotNull String line, @NotNull Hologram.Type type);
 
+    /**
+     * Creates a {@link de.jeff_media.jefflib.internal.hologram.PacketHologramLine} without a server-side entity. All other
+     * entity methods of this handler accept these lines as well. Can be called from any thread.
+     */
+    Object createPacketHologram(@NotNull Location location, @NotNull String line, @NotNull Hologram.Type type);
+
     void showEntityToPlayer(@NotNull Object entity, @NotNull Player player);
 
     void hideEntityFromPlayer(@NotNull Object entity, @NotNull Player player);
 
+    void showEntitiesToPlayer(@NotNull Collection<?> entities, @NotNull Player player);
+
+    void hideEntitiesFromPlayer(@NotNull Collection<?> entities, @NotNull Player player);
+
     void sendPacket(@NotNull final Player player, @NotNull final Object packet);
 
     Pair<String,String> getBiomeName(@NotNull final Location location);
@@ -0,0 +1,157 @@
+package de.jeff_media.jefflib.internal.serialization;
+
+import de.jeff_media.jefflib.ItemSerializer;
+import de.jeff_media.jefflib.JeffLib;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import de.jeff_media.jefflib.internal.listeners.BulkItemSerializerListener;
+import lombok.experimental.UtilityClass;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serializes many ItemStack arrays in parallel. Uses a small pool of daemon threads that is only started when needed
+ * and whose threads stop after being idle for a minute. The pool is shut down when the plugin is disabled; afterwards,
+ * items are serialized on the calling thread.
+ */
+@InternalOnly
+@UtilityClass
+public final class BulkItemSerializer {
+
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    /**
+     * Every thread gets a few batches, so that one large batch doesn't keep the other threads waiting
+     */
+    private static final int BATCHES_PER_THREAD = 4;
+    private static ExecutorService executor = null;
+    private static boolean listenerRegistered = false;
+
+    /**
+     * Registers the listener that shuts down the pool when the plugin is disabled. Does nothing when the plugin isn't
+     * enabled yet; in that case, the listener is registered once the pool is started.
+     */
+    public static synchronized void registerShutdownListener() {
+        final Plugin plugin = JeffLib.getPlugin();
+        if (listenerRegistered || plugin == null || !plugin.isEnabled()) return;
+        if (Bukkit.isPrimaryThread()) {
+            Bukkit.getPluginManager().registerEvents(new BulkItemSerializerListener(), plugin);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, () -> Bukkit.getPluginManager().registerEvents(new BulkItemSerializerListener(), plugin));
+        }
+        listenerRegistered = true;
+    }
+
+    /**
+     * Stops the worker threads, so that they don't keep the plugin's classloader alive after it has been disabled.
+     * Already submitted batches still finish, but this doesn't wait for them.
+     */
+    public static synchronized void shutdown() {
+        // Bukkit unregisters all listeners of a disabled plugin
+        listenerRegistered = false;
+        if (executor == null) return;
+        executor.shutdown();
+        executor = null;
+    }
+
+    private static synchronized Executor getExecutor() {
+        final Plugin plugin = JeffLib.getPlugin();
+        if (plugin != null && !plugin.isEnabled()) {
+            // e.g. when saving in onDisable, which runs after the pool has been shut down
+            return Runnable::run;
+        }
+        if (executor == null) {
+            final AtomicInteger counter = new AtomicInteger();
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                final Thread thread = new Thread(runnable, "JeffLib-ItemSerializer-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+            registerShutdownListener();
+        }
+        final ExecutorService pool = executor;
+        return command -> {
+            try {
+                pool.execute(command);
+            } catch (final RejectedExecutionException exception) {
+                // The pool has been shut down by another thread in the meantime
+                command.run();
+            }
+        };
+    }
+
+    /**
+     * Copies all items on the calling thread, then serializes the copies in parallel using the compact format
+     *
+     * @param inventories Item arrays by key
+     * @param encoding    Encoding to use
+     * @return CompletableFuture that completes with the serialized arrays, in the same order as the given map
+     */
+    @NotNull
+    public static <K> CompletableFuture<Map<K, byte[]>> serializeAll(@NotNull final Map<K, ItemStack[]> inventories, @NotNull final ItemSerializer.Encoding encoding) {
+        final List<K> keys = new ArrayList<>(inventories.size());
+        final List<ItemStack[]> snapshots = new ArrayList<>(inventories.size());
+        for (final Map.Entry<K, ItemStack[]> entry : inventories.entrySet()) {
+            keys.add(entry.getKey());
+            snapshots.add(copy(entry.getValue()));
+        }
+        if (snapshots.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+
+        final byte[][] results = new byte[snapshots.size()][];
+        final int batchSize = Math.max(1, (snapshots.size() + THREADS * BATCHES_PER_THREAD - 1) / (THREADS * BATCHES_PER_THREAD));
+        final Executor batchExecutor = getExecutor();
+        final List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int start = 0; start < snapshots.size(); start += batchSize) {
+            final int from = start;
+            final int to = Math.min(snapshots.size(), start + batchSize);
+            batches.add(CompletableFuture.runAsync(() -> {
+                final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1024);
+                final DataOutputStream dataOutput = new DataOutputStream(outputStream);
+                for (int i = from; i < to; i++) {
+                    outputStream.reset();
+                    try {
+                        CompactItemCodec.writeArray(dataOutput, snapshots.get(i), encoding);
+                    } catch (final Exception exception) {
+                        throw new IllegalStateException("Unable to save item stacks of " + keys.get(i), exception);
+                    }
+                    results[i] = outputStream.toByteArray();
+                }
+            }, batchExecutor));
+        }
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).thenApply(__ -> {
+            final Map<K, byte[]> map = new LinkedHashMap<>();
+            for (int i = 0; i < results.length; i++) {
+                map.put(keys.get(i), results[i]);
+            }
+            return map;
+        });
+    }
+
+    private static ItemStack[] copy(final ItemStack[] items) {
+        final ItemStack[] copy = new ItemStack[items.length];
+        for (int i = 0; i < items.length; i++) {
+            copy[i] = items[i] == null ? null : items[i].clone();
+        }
+        return copy;
+    }
+}
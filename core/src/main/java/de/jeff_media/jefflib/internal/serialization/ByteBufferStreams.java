@@ -0,0 +1,57 @@
+package de.jeff_media.jefflib.internal.serialization;
+
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Streams that read from or write into a {@link ByteBuffer}, starting at its current position. Writing more than the
+ * remaining space throws a {@link java.nio.BufferOverflowException}.
+ */
+@InternalOnly
+@UtilityClass
+public final class ByteBufferStreams {
+
+    @NotNull
+    public static OutputStream output(@NotNull final ByteBuffer buffer) {
+        return new OutputStream() {
+            @Override
+            public void write(final int b) {
+                buffer.put((byte) b);
+            }
+
+            @Override
+            public void write(@NotNull final byte[] bytes, final int offset, final int length) {
+                buffer.put(bytes, offset, length);
+            }
+        };
+    }
+
+    @NotNull
+    public static InputStream input(@NotNull final ByteBuffer buffer) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(@NotNull final byte[] bytes, final int offset, final int length) {
+                if (length == 0) return 0;
+                if (!buffer.hasRemaining()) return -1;
+                final int read = Math.min(length, buffer.remaining());
+                buffer.get(bytes, offset, read);
+                return read;
+            }
+
+            @Override
+            public int available() {
+                return buffer.remaining();
+            }
+        };
+    }
+}
@@ -0,0 +1,452 @@
+package de.jeff_media.jefflib.internal.serialization;
+
+import de.jeff_media.jefflib.ItemSerializer;
+import de.jeff_media.jefflib.internal.InternalOnly;
+import lombok.experimental.UtilityClass;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary format for ItemStacks. It stores the same data as {@link ItemStack#serialize()}, so it can be converted from and
+ * to the {@link org.bukkit.util.io.BukkitObjectOutputStream} format without losing anything, but writes it as tagged binary
+ * values instead of using Java serialization.
+ * <p>
+ * Every stream starts with a header: two magic bytes, the format version and the DataVersion of the server that wrote it.
+ * Items are read back using {@link ItemStack#deserialize(Map)} together with that DataVersion, so Bukkit can upgrade
+ * items written by older versions. Materials are stored by name, as ordinals change between versions.
+ * <p>
+ * Arrays can use format version 2, which adds a flags byte to the header. With {@link #FLAG_DEDUPLICATED}, runs of null
+ * and identical items are stored once, and items that are similar to an earlier item only reference it. With
+ * {@link #FLAG_DEFLATED}, everything after the header is DEFLATE compressed.
+ */
+@InternalOnly
+@UtilityClass
+public final class CompactItemCodec {
+
+    public static final int MAGIC = 0x4A4C; // "JL", never the start of a Java serialization stream (0xACED)
+    public static final int FORMAT_VERSION = 1;
+    public static final int FORMAT_VERSION_ENCODED = 2;
+    public static final int FLAG_DEDUPLICATED = 1;
+    public static final int FLAG_DEFLATED = 2;
+
+    private static final int OP_NULL = 0;
+    private static final int OP_NEW = 1;
+    private static final int OP_REFERENCE = 2;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INT = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_TRUE = 6;
+    private static final int TAG_FALSE = 7;
+    private static final int TAG_SHORT = 8;
+    private static final int TAG_BYTE = 9;
+    private static final int TAG_LIST = 10;
+    private static final int TAG_MAP = 11;
+    private static final int TAG_SERIALIZABLE = 12;
+
+    private static final String ITEM_TYPE = "type";
+    private static final String ITEM_AMOUNT = "amount";
+    private static final String ITEM_META = "meta";
+    private static final String ITEM_DATA_VERSION = "v";
+
+    /**
+     * Checks whether the given bytes start with the compact header
+     */
+    public static boolean isCompact(@NotNull final byte[] bytes) {
+        return bytes.length >= 3 && ((bytes[0] & 0xFF) << 8 | bytes[1] & 0xFF) == MAGIC;
+    }
+
+    @SuppressWarnings("deprecation")
+    public static int getCurrentDataVersion() {
+        return Bukkit.getUnsafe().getDataVersion();
+    }
+
+    public static void writeHeader(@NotNull final DataOutput out) throws IOException {
+        out.writeShort(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        writeVarInt(out, getCurrentDataVersion());
+    }
+
+    /**
+     * Reads the header of a single item or a plain array
+     *
+     * @return DataVersion the data has been written with
+     */
+    public static int readHeader(@NotNull final DataInput in) throws IOException {
+        final int version = readMagicAndVersion(in);
+        if (version != FORMAT_VERSION) {
+            throw new StreamCorruptedException("Unsupported compact item format version " + version);
+        }
+        return readVarInt(in);
+    }
+
+    private static int readMagicAndVersion(final DataInput in) throws IOException {
+        if (in.readUnsignedShort() != MAGIC) {
+            throw new StreamCorruptedException("Not a compact item stream");
+        }
+        return in.readUnsignedByte();
+    }
+
+    /**
+     * Writes an ItemStack array including the header
+     */
+    public static void writeArray(@NotNull final DataOutput out, @NotNull final ItemStack[] items, @NotNull final ItemSerializer.Encoding encoding) throws IOException {
+        final int flags = getFlags(encoding);
+        if (flags == 0) {
+            writeHeader(out);
+            writeBody(out, items, flags);
+            return;
+        }
+        out.writeShort(MAGIC);
+        out.writeByte(FORMAT_VERSION_ENCODED);
+        out.writeByte(flags);
+        writeVarInt(out, getCurrentDataVersion());
+        if ((flags & FLAG_DEFLATED) == 0) {
+            writeBody(out, items, flags);
+            return;
+        }
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(64 + items.length * 8);
+        final Deflater deflater = new Deflater();
+        try (final DataOutputStream deflaterOutput = new DataOutputStream(new DeflaterOutputStream(compressed, deflater, 4096))) {
+            writeBody(deflaterOutput, items, flags);
+        } finally {
+            deflater.end();
+        }
+        // The length is stored, so that readers never read past the end of the array
+        writeVarInt(out, compressed.size());
+        out.write(compressed.toByteArray());
+    }
+
+    /**
+     * Reads an ItemStack array including the header, in any format version
+     */
+    @NotNull
+    public static ItemStack[] readArray(@NotNull final DataInput in) throws IOException {
+        final int version = readMagicAndVersion(in);
+        final int flags;
+        if (version == FORMAT_VERSION) {
+            flags = 0;
+        } else if (version == FORMAT_VERSION_ENCODED) {
+            flags = in.readUnsignedByte();
+        } else {
+            throw new StreamCorruptedException("Unsupported compact item format version " + version);
+        }
+        final int dataVersion = readVarInt(in);
+        if ((flags & FLAG_DEFLATED) == 0) {
+            return readBody(in, dataVersion, flags);
+        }
+        final byte[] compressed = new byte[readVarInt(in)];
+        in.readFully(compressed);
+        try (final DataInputStream inflaterInput = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+            return readBody(inflaterInput, dataVersion, flags);
+        }
+    }
+
+    private static int getFlags(final ItemSerializer.Encoding encoding) {
+        switch (encoding) {
+            case DEDUPLICATED:
+                return FLAG_DEDUPLICATED;
+            case COMPRESSED:
+                return FLAG_DEDUPLICATED | FLAG_DEFLATED;
+            case PLAIN:
+            default:
+                return 0;
+        }
+    }
+
+    private static void writeBody(final DataOutput out, final ItemStack[] items, final int flags) throws IOException {
+        writeVarInt(out, items.length);
+        if ((flags & FLAG_DEDUPLICATED) == 0) {
+            for (final ItemStack item : items) {
+                writeItem(out, item);
+            }
+            return;
+        }
+        // Keys are the items with an amount of 1, so stacks of different sizes share the same entry
+        final Map<ItemStack, Integer> dictionary = new HashMap<>();
+        int i = 0;
+        while (i < items.length) {
+            final ItemStack item = items[i];
+            int run = 1;
+            while (i + run < items.length && isSame(item, items[i + run])) {
+                run++;
+            }
+            if (item == null) {
+                out.writeByte(OP_NULL);
+            } else {
+                final ItemStack key = item.clone();
+                key.setAmount(1);
+                final Integer index = dictionary.get(key);
+                if (index == null) {
+                    dictionary.put(key, dictionary.size());
+                    out.writeByte(OP_NEW);
+                    writeItem(out, item);
+                } else {
+                    out.writeByte(OP_REFERENCE);
+                    writeVarInt(out, index);
+                    writeVarInt(out, item.getAmount());
+                }
+            }
+            writeVarInt(out, run);
+            i += run;
+        }
+    }
+
+    private static ItemStack[] readBody(final DataInput in, final int dataVersion, final int flags) throws IOException {
+        final ItemStack[] items = new ItemStack[readVarInt(in)];
+        if ((flags & FLAG_DEDUPLICATED) == 0) {
+            for (int i = 0; i < items.length; i++) {
+                items[i] = readItem(in, dataVersion);
+            }
+            return items;
+        }
+        final List<ItemStack> dictionary = new ArrayList<>();
+        int i = 0;
+        while (i < items.length) {
+            final int op = in.readUnsignedByte();
+            final ItemStack item;
+            switch (op) {
+                case OP_NULL:
+                    item = null;
+                    break;
+                case OP_NEW:
+                    item = readItem(in, dataVersion);
+                    dictionary.add(item);
+                    break;
+                case OP_REFERENCE:
+                    final int index = readVarInt(in);
+                    if (index >= dictionary.size()) {
+                        throw new StreamCorruptedException("Invalid item reference " + index);
+                    }
+                    item = dictionary.get(index).clone();
+                    item.setAmount(readVarInt(in));
+                    break;
+                default:
+                    throw new StreamCorruptedException("Unknown operation " + op);
+            }
+            final int run = readVarInt(in);
+            if (run <= 0 || i + run > items.length) {
+                throw new StreamCorruptedException("Invalid run length " + run);
+            }
+            items[i] = item;
+            // Every slot gets its own instance, as ItemStacks are mutable
+            for (int j = 1; j < run; j++) {
+                items[i + j] = item == null ? null : item.clone();
+            }
+            i += run;
+        }
+        return items;
+    }
+
+    private static boolean isSame(final ItemStack first, final ItemStack second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    /**
+     * Writes a single ItemStack. Null is written as a single byte.
+     */
+    public static void writeItem(@NotNull final DataOutput out, @Nullable final ItemStack item) throws IOException {
+        if (item == null) {
+            out.writeByte(0);
+            return;
+        }
+        final Map<String, Object> map = item.serialize();
+        final Object meta = map.get(ITEM_META);
+        out.writeByte(meta == null ? 1 : 2);
+        writeString(out, (String) map.get(ITEM_TYPE));
+        writeVarInt(out, item.getAmount());
+        if (meta != null) {
+            writeValue(out, meta);
+        }
+    }
+
+    /**
+     * Reads a single ItemStack
+     *
+     * @param dataVersion DataVersion from the header
+     */
+    @Nullable
+    public static ItemStack readItem(@NotNull final DataInput in, final int dataVersion) throws IOException {
+        final int kind = in.readUnsignedByte();
+        if (kind == 0) return null;
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put(ITEM_DATA_VERSION, dataVersion);
+        map.put(ITEM_TYPE, readString(in));
+        map.put(ITEM_AMOUNT, readVarInt(in));
+        if (kind == 2) {
+            map.put(ITEM_META, readValue(in));
+        }
+        return ItemStack.deserialize(map);
+    }
+
+    private static void writeValue(final DataOutput out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            final int number = (Integer) value;
+            writeVarInt(out, number << 1 ^ number >> 31); // ZigZag, so small negative numbers stay small
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Collection) {
+            // Also covers sets like the ItemFlags, which Bukkit reads back as any Iterable
+            final Collection<?> collection = (Collection<?>) value;
+            out.writeByte(TAG_LIST);
+            writeVarInt(out, collection.size());
+            for (final Object element : collection) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Iterable) {
+            final List<Object> list = new ArrayList<>();
+            for (final Object element : (Iterable<?>) value) {
+                list.add(element);
+            }
+            writeValue(out, list);
+        } else if (value instanceof Map) {
+            out.writeByte(TAG_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (value instanceof ConfigurationSerializable) {
+            final ConfigurationSerializable serializable = (ConfigurationSerializable) value;
+            out.writeByte(TAG_SERIALIZABLE);
+            writeString(out, ConfigurationSerialization.getAlias(serializable.getClass()));
+            writeMap(out, serializable.serialize());
+        } else {
+            throw new IOException("Cannot serialize " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(final DataInput in) throws IOException {
+        final int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_INT:
+                final int number = readVarInt(in);
+                return number >>> 1 ^ -(number & 1);
+            case TAG_TRUE:
+                return true;
+            case TAG_FALSE:
+                return false;
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_LIST:
+                final int size = readVarInt(in);
+                final List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case TAG_MAP:
+                return readMap(in);
+            case TAG_SERIALIZABLE:
+                final String alias = readString(in);
+                final Map<String, Object> map = readMap(in);
+                map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+                return ConfigurationSerialization.deserializeObject(map);
+            default:
+                throw new StreamCorruptedException("Unknown tag " + tag);
+        }
+    }
+
+    private static void writeMap(final DataOutput out, final Map<?, ?> map) throws IOException {
+        writeVarInt(out, map.size());
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, String.valueOf(entry.getKey()));
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, Object> readMap(final DataInput in) throws IOException {
+        final int size = readVarInt(in);
+        final Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            final String key = readString(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    public static void writeString(final DataOutput out, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(final DataInput in) throws IOException {
+        final byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeVarInt(final DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(final DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new StreamCorruptedException("VarInt too long");
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Internal codecs used by the {@link de.jeff_media.jefflib.ItemSerializer}. Should not be used from the outside
+ */
+
+package de.jeff_media.jefflib.internal.serialization;
@@ -4,8 +4,12 @@ import com.mojang.authlib.GameProfile;
 import de.jeff_media.jefflib.PacketUtils;
 import de.jeff_media.jefflib.data.Hologram;
 import de.jeff_media.jefflib.data.tuples.Pair;
+import de.jeff_media.jefflib.internal.hologram.HologramPacketEncoder;
+import de.jeff_media.jefflib.internal.hologram.PacketHologramLine;
 import de.jeff_media.jefflib.internal.nms.AbstractNMSHandler;
 import de.jeff_media.jefflib.internal.nms.NBTItem;
+import io.netty.buffer.Unpooled;
+import lombok.SneakyThrows;
 import net.minecraft.server.v1_16_R1.*;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -18,16 +22,86 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+
 public class NMSHandler implements AbstractNMSHandler {
 
+    private static final HologramPacketEncoder ENCODER = new HologramPacketEncoder(1, 0, 14, 7);
+
+    private static int getId(final Object entity) {
+        if (entity instanceof PacketHologramLine) {
+            return ((PacketHologramLine) entity).getId();
+        }
+        return ((Entity) entity).getId();
+    }
+
+    /**
+     * Fills a packet from the given bytes
+     */
+    @SneakyThrows
+    private static <T extends Packet<?>> T read(final T packet, final byte[] bytes) {
+        packet.a(new PacketDataSerializer(Unpooled.wrappedBuffer(bytes)));
+        return packet;
+    }
+
+    private static void sendSpawnPackets(final Object entity, final Player player) {
+        if (entity instanceof PacketHologramLine) {
+            final PacketHologramLine line = (PacketHologramLine) entity;
+            final byte[] spawn = ENCODER.encodeSpawn(line);
+            PacketUtils.sendPacket(player, HologramPacketEncoder.isLiving(line) ? read(new PacketPlayOutSpawnEntityLiving(), spawn) : read(new PacketPlayOutSpawnEntity(), spawn));
+            PacketUtils.sendPacket(player, read(new PacketPlayOutEntityMetadata(), ENCODER.encodeMetadata(line)));
+            return;
+        }
+        PacketUtils.sendPacket(player, new PacketPlayOutSpawnEntity((Entity) entity));
+        PacketUtils.sendPacket(player, new PacketPlayOutEntityMetadata(((Entity) entity).getId(), ((Entity) entity).getDataWatcher(), true));
+    }
+
+    private static String toJson(final String name) {
+        return CraftChatMessage.toJSON(CraftChatMessage.fromString(name)[0]);
+    }
+
     @Override
     public void changeNMSEntityName(@NotNull final Object entity, @NotNull final String name) {
-        ((Entity) entity).setCustomName(CraftChatMessage.fromString(name)[0]);
-        for(final Player player : Bukkit.getOnlinePlayers()) {
-            sendPacket(player, new PacketPlayOutEntityMetadata(((Entity)entity).getId(),((Entity)entity).getDataWatcher(),true));
+        changeNMSEntityName(entity, name, Bukkit.getOnlinePlayers());
+    }
+
+    @Override
+    public void changeNMSEntityName(@NotNull final Object entity, @NotNull final String name, @NotNull final Collection<? extends Player> viewers) {
+        final PacketPlayOutEntityMetadata packet;
+        if (entity instanceof PacketHologramLine) {
+            final PacketHologramLine line = (PacketHologramLine) entity;
+            line.setName(toJson(name));
+            if (viewers.isEmpty()) return;
+            packet = read(new PacketPlayOutEntityMetadata(), ENCODER.encodeName(line, line.getName()));
+        } else {
+            ((Entity) entity).setCustomName(CraftChatMessage.fromString(name)[0]);
+            if (viewers.isEmpty()) return;
+            packet = new PacketPlayOutEntityMetadata(((Entity) entity).getId(), ((Entity) entity).getDataWatcher(), true);
+        }
+        for (final Player player : viewers) {
+            sendPacket(player, packet);
         }
     }
 
+    @Override
+    public void sendNMSEntityName(@NotNull final Object entity, @NotNull final String name, @NotNull final Player player) {
+        if (entity instanceof PacketHologramLine) {
+            sendPacket(player, read(new PacketPlayOutEntityMetadata(), ENCODER.encodeName((PacketHologramLine) entity, toJson(name))));
+            return;
+        }
+        // The packet copies the entity's data, so the name can be changed back right away
+        final Entity nmsEntity = (Entity) entity;
+        final IChatBaseComponent previous = nmsEntity.getCustomName();
+        nmsEntity.setCustomName(CraftChatMessage.fromString(name)[0]);
+        sendPacket(player, new PacketPlayOutEntityMetadata(nmsEntity.getId(), nmsEntity.getDataWatcher(), true));
+        nmsEntity.setCustomName(previous);
+    }
+
+    @Override
+    public Object createPacketHologram(@NotNull final Location location, @NotNull final String line, @NotNull final Hologram.Type type) {
+        return new PacketHologramLine(type, location.getX(), location.getY(), location.getZ(), toJson(line));
+    }
+
     @Override
     public Object createHologram(@NotNull final Location location, final @NotNull String line, @NotNull final Hologram.Type type) {
         final CraftWorld craftWorld = (CraftWorld) location.getWorld();
@@ -61,19 +135,32 @@ public class NMSHandler implements AbstractNMSHandler {
 
     @Override
     public void showEntityToPlayer(@NotNull final Object entity, @NotNull final Player player) {
-        final PacketPlayOutSpawnEntity packetSpawn = new PacketPlayOutSpawnEntity((Entity) entity);
-        PacketUtils.sendPacket(player, packetSpawn);
-
-        final PacketPlayOutEntityMetadata packetMeta = new PacketPlayOutEntityMetadata(((Entity)entity).getId(), ((Entity)entity).getDataWatcher(), true);
-        PacketUtils.sendPacket(player, packetMeta);
+        sendSpawnPackets(entity, player);
     }
 
     @Override
     public void hideEntityFromPlayer(@NotNull final Object entity, @NotNull final Player player) {
-        final PacketPlayOutEntityDestroy packetDestroy = new PacketPlayOutEntityDestroy(((Entity) entity).getId());
+        final PacketPlayOutEntityDestroy packetDestroy = new PacketPlayOutEntityDestroy(getId(entity));
         PacketUtils.sendPacket(player, packetDestroy);
     }
 
+    @Override
+    public void showEntitiesToPlayer(@NotNull final Collection<?> entities, @NotNull final Player player) {
+        for (final Object entity : entities) {
+            sendSpawnPackets(entity, player);
+        }
+    }
+
+    @Override
+    public void hideEntitiesFromPlayer(@NotNull final Collection<?> entities, @NotNull final Player player) {
+        final int[] ids = new int[entities.size()];
+        int i = 0;
+        for (final Object entity : entities) {
+            ids[i++] = getId(entity);
+        }
+        PacketUtils.sendPacket(player, new PacketPlayOutEntityDestroy(ids));
+    }
+
     @Override
     public void sendPacket(@NotNull final Player player, @NotNull final Object packet) {
         NMSPacketUtils.sendPacket(player, packet);
@@ -4,10 +4,14 @@ import com.mojang.authlib.GameProfile;
 import de.jeff_media.jefflib.PacketUtils;
 import de.jeff_media.jefflib.data.Hologram;
 import de.jeff_media.jefflib.data.tuples.Pair;
+import de.jeff_media.jefflib.internal.hologram.HologramPacketEncoder;
+import de.jeff_media.jefflib.internal.hologram.PacketHologramLine;
 import de.jeff_media.jefflib.internal.nms.AbstractNMSHandler;
 import de.jeff_media.jefflib.internal.nms.NBTItem;
+import io.netty.buffer.Unpooled;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.Connection;
+import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.*;
@@ -27,25 +31,106 @@ import org.bukkit.craftbukkit.v1_18_R1.util.CraftChatMessage;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+
 public class NMSHandler implements AbstractNMSHandler {
 
+    private static final HologramPacketEncoder ENCODER = new HologramPacketEncoder(1, 0, 15, 8);
+
+    private static int getId(final Object entity) {
+        if (entity instanceof PacketHologramLine) {
+            return ((PacketHologramLine) entity).getId();
+        }
+        return ((Entity) entity).getId();
+    }
+
+    private static FriendlyByteBuf wrap(final byte[] bytes) {
+        return new FriendlyByteBuf(Unpooled.wrappedBuffer(bytes));
+    }
+
+    private static void sendSpawnPackets(final Object entity, final org.bukkit.entity.Player player) {
+        if (entity instanceof PacketHologramLine) {
+            final PacketHologramLine line = (PacketHologramLine) entity;
+            final FriendlyByteBuf spawn = wrap(ENCODER.encodeSpawn(line));
+            PacketUtils.sendPacket(player, HologramPacketEncoder.isLiving(line) ? new ClientboundAddMobPacket(spawn) : new ClientboundAddEntityPacket(spawn));
+            PacketUtils.sendPacket(player, new ClientboundSetEntityDataPacket(wrap(ENCODER.encodeMetadata(line))));
+            return;
+        }
+        PacketUtils.sendPacket(player, new ClientboundAddEntityPacket((Entity) entity));
+        PacketUtils.sendPacket(player, new ClientboundSetEntityDataPacket(((Entity) entity).getId(), ((Entity) entity).getEntityData(), true));
+    }
+
+    private static String toJson(final String name) {
+        return CraftChatMessage.toJSON(CraftChatMessage.fromString(name)[0]);
+    }
+
     @Override
     public void showEntityToPlayer(@NotNull final Object entity, @NotNull final org.bukkit.entity.Player player) {
-        PacketUtils.sendPacket(player, new ClientboundAddEntityPacket((Entity) entity));
-        PacketUtils.sendPacket(player, new ClientboundSetEntityDataPacket(((Entity)entity).getId(), ((Entity)entity).getEntityData(), true));
+        sendSpawnPackets(entity, player);
     }
 
     @Override
     public void hideEntityFromPlayer(@NotNull final Object entity, @NotNull final org.bukkit.entity.Player player) {
-        PacketUtils.sendPacket(player, new ClientboundRemoveEntitiesPacket(((Entity) entity).getId()));
+        PacketUtils.sendPacket(player, new ClientboundRemoveEntitiesPacket(getId(entity)));
+    }
+
+    @Override
+    public void showEntitiesToPlayer(@NotNull final Collection<?> entities, @NotNull final org.bukkit.entity.Player player) {
+        for (final Object entity : entities) {
+            sendSpawnPackets(entity, player);
+        }
+    }
+
+    @Override
+    public void hideEntitiesFromPlayer(@NotNull final Collection<?> entities, @NotNull final org.bukkit.entity.Player player) {
+        final int[] ids = new int[entities.size()];
+        int i = 0;
+        for (final Object entity : entities) {
+            ids[i++] = getId(entity);
+        }
+        PacketUtils.sendPacket(player, new ClientboundRemoveEntitiesPacket(ids));
     }
 
     @Override
     public void changeNMSEntityName(@NotNull final Object entity, @NotNull final String name) {
-        ((Entity) entity).setCustomName(CraftChatMessage.fromString(name)[0]);
-        for(final org.bukkit.entity.Player player : Bukkit.getOnlinePlayers()) {
-            sendPacket(player, new ClientboundSetEntityDataPacket(((Entity)entity).getId(),((Entity)entity).getEntityData(),true));
+        changeNMSEntityName(entity, name, Bukkit.getOnlinePlayers());
+    }
+
+    @Override
+    public void changeNMSEntityName(@NotNull final Object entity, @NotNull final String name, @NotNull final Collection<? extends org.bukkit.entity.Player> viewers) {
+        final ClientboundSetEntityDataPacket packet;
+        if (entity instanceof PacketHologramLine) {
+            final PacketHologramLine line = (PacketHologramLine) entity;
+            line.setName(toJson(name));
+            if (viewers.isEmpty()) return;
+            packet = new ClientboundSetEntityDataPacket(wrap(ENCODER.encodeName(line, line.getName())));
+        } else {
+            ((Entity) entity).setCustomName(CraftChatMessage.fromString(name)[0]);
+            if (viewers.isEmpty()) return;
+            packet = new ClientboundSetEntityDataPacket(((Entity) entity).getId(), ((Entity) entity).getEntityData(), true);
         }
+        for (final org.bukkit.entity.Player player : viewers) {
+            sendPacket(player, packet);
+        }
+    }
+
+    @Override
+    public void sendNMSEntityName(@NotNull final Object entity, @NotNull final String name, @NotNull final org.bukkit.entity.Player player) {
+        if (entity instanceof PacketHologramLine) {
+            sendPacket(player, new ClientboundSetEntityDataPacket(wrap(ENCODER.encodeName((PacketHologramLine) entity, toJson(name)))));
+            return;
+        }
+        // The packet copies the entity's data, so the name can be changed back right away
+        final Entity nmsEntity = (Entity) entity;
+        final Component previous = nmsEntity.getCustomName();
+        nmsEntity.setCustomName(CraftChatMessage.fromString(name)[0]);
+        sendPacket(player, new ClientboundSetEntityDataPacket(nmsEntity.getId(), nmsEntity.getEntityData(), true));
+        nmsEntity.setCustomName(previous);
+    }
+
+    @Override
+    public Object createPacketHologram(@NotNull final Location location, @NotNull final String line, @NotNull final Hologram.Type type) {
+        return new PacketHologramLine(type, location.getX(), location.getY(), location.getZ(), toJson(line));
     }
 
     @Override